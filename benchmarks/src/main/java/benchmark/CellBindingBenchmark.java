@@ -0,0 +1,152 @@
+package benchmark;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.util.Callback;
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cell binding work in one scroll frame of the roster table: every cell of the visible rows asks
+// its column's cell value factory for a value, as the table does when it scrolls to new rows.
+// Rendering needs a display and is left out, so this isolates the factories' share of a frame.
+// Each frame jumps a page further through a rosterSize-row roster, as fast scrolling does.
+// Run with -prof gc to see the allocation per frame.
+//
+// readOnlyWrappers is the binding the table had before Student got property methods: a new
+// ReadOnlyObjectWrapper per cell, which is what PropertyValueFactory built from the getters. Now
+// that the properties exist, PropertyValueFactory finds and returns them, so propertyValueFactory
+// only adds the reflective lookup to directFactories. Both of those reuse properties created during
+// warmup; the *FirstTouch variants show rows whose properties are created by that very frame, as
+// when rows scroll into view for the first time. Their allocation per frame also counts the
+// per-invocation copy of the frame's Students (about 1.5 KB for 24 rows).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CellBindingBenchmark {
+    // Rows the 600px roster table shows at once
+    private static final int VISIBLE_ROWS = 24;
+    private static final String[] COLUMNS = {"id", "firstName", "lastName", "year", "major", "email"};
+
+    @Param({"100000"})
+    int rosterSize;
+
+    private List<Student> roster;
+    private List<TableColumn<Student, Object>> columns;
+    private List<Callback<TableColumn.CellDataFeatures<Student, Object>, ObservableValue<Object>>> reflective;
+    private List<Callback<TableColumn.CellDataFeatures<Student, Object>, ObservableValue<Object>>> direct;
+    private List<Callback<TableColumn.CellDataFeatures<Student, Object>, ObservableValue<Object>>> wrappers;
+    private int top;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void build() {
+        roster = new ArrayList<>(rosterSize);
+        for (int n = 0; n < rosterSize; n++) {
+            Student student = EmbeddedRoster.student(n);
+            student.setId(n + 1);
+            roster.add(student);
+        }
+        columns = new ArrayList<>();
+        reflective = new ArrayList<>();
+        for (String property : COLUMNS) {
+            columns.add(new TableColumn<>(property));
+            reflective.add(new PropertyValueFactory<>(property));
+        }
+        // The same factories DB_GUI_Controller installs
+        direct = List.of(
+                cell -> (ObservableValue<Object>) (ObservableValue<?>) cell.getValue().idProperty(),
+                cell -> (ObservableValue<Object>) (ObservableValue<?>) cell.getValue().firstNameProperty(),
+                cell -> (ObservableValue<Object>) (ObservableValue<?>) cell.getValue().lastNameProperty(),
+                cell -> (ObservableValue<Object>) (ObservableValue<?>) cell.getValue().yearProperty(),
+                cell -> (ObservableValue<Object>) (ObservableValue<?>) cell.getValue().majorProperty(),
+                cell -> (ObservableValue<Object>) (ObservableValue<?>) cell.getValue().emailProperty());
+        wrappers = List.of(
+                cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getId()),
+                cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getFirstName()),
+                cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getLastName()),
+                cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getYear()),
+                cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getMajor()),
+                cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getEmail()));
+    }
+
+    // One frame's rows as Students no cell has asked for a property yet
+    @State(Scope.Thread)
+    public static class FreshRows {
+        List<Student> rows = new ArrayList<>(VISIBLE_ROWS);
+        private int next;
+
+        @Setup(Level.Invocation)
+        public void copy(CellBindingBenchmark benchmark) {
+            rows.clear();
+            next = (next + VISIBLE_ROWS * 7) % (benchmark.rosterSize - VISIBLE_ROWS);
+            for (int row = next; row < next + VISIBLE_ROWS; row++) {
+                Student student = benchmark.roster.get(row);
+                rows.add(new Student(student.getId(), student.getFirstName(), student.getLastName(),
+                        student.getMajor(), student.getEmail(), student.getYear()));
+            }
+        }
+    }
+
+    @Benchmark
+    public int readOnlyWrappers() {
+        return frame(wrappers);
+    }
+
+    @Benchmark
+    public int propertyValueFactory() {
+        return frame(reflective);
+    }
+
+    @Benchmark
+    public int directFactories() {
+        return frame(direct);
+    }
+
+    @Benchmark
+    public int readOnlyWrappersFirstTouch(FreshRows fresh) {
+        return frame(wrappers, fresh.rows);
+    }
+
+    @Benchmark
+    public int directFactoriesFirstTouch(FreshRows fresh) {
+        return frame(direct, fresh.rows);
+    }
+
+    private int frame(List<Callback<TableColumn.CellDataFeatures<Student, Object>, ObservableValue<Object>>> factories) {
+        top = (top + VISIBLE_ROWS * 7) % (rosterSize - VISIBLE_ROWS);
+        return frame(factories, roster.subList(top, top + VISIBLE_ROWS));
+    }
+
+    private int frame(List<Callback<TableColumn.CellDataFeatures<Student, Object>, ObservableValue<Object>>> factories,
+                      List<Student> rows) {
+        int hash = 0;
+        for (Student student : rows) {
+            for (int column = 0; column < factories.size(); column++) {
+                ObservableValue<Object> value = factories.get(column).call(
+                        new TableColumn.CellDataFeatures<>(null, columns.get(column), student));
+                hash += value.getValue().hashCode();
+            }
+        }
+        return hash;
+    }
+}
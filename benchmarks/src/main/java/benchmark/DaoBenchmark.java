@@ -0,0 +1,113 @@
+package benchmark;
+
+import dao.DbConnectivityClass;
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Single-row DAO operations and full-table reads against a roster of rosterSize students.
+// Rows inserted during an iteration are removed again afterwards so the roster stays the same size.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DaoBenchmark {
+    private static final String COURSE = "bench_dao";
+
+    @Param({"1000", "10000", "100000"})
+    int rosterSize;
+
+    private DbConnectivityClass dao;
+    private List<Student> roster;
+    private int seededMaxId;
+    private int nextStudent;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void seed() throws Exception {
+        EmbeddedRoster.start();
+        dao = EmbeddedRoster.seed(COURSE, rosterSize);
+        roster = dao.fetchAllStudents();
+        seededMaxId = roster.get(roster.size() - 1).getId();
+        nextStudent = rosterSize;
+    }
+
+    // The server process would otherwise keep the forked JVM alive
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        EmbeddedRoster.stop();
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeInserted() throws Exception {
+        EmbeddedRoster.execute(COURSE, "DELETE FROM users WHERE id > " + seededMaxId);
+    }
+
+    @Benchmark
+    public int insertUser() {
+        return dao.insertUser(EmbeddedRoster.student(nextStudent++));
+    }
+
+    @Benchmark
+    public void editUser() {
+        Student current = nextExisting();
+        Student edited = new Student(current.getId(), current.getFirstName(), current.getLastName(),
+                current.getMajor(), current.getEmail(), nextStudent++ % 2 == 0 ? "Junior" : "Senior");
+        dao.editUser(current.getId(), edited);
+    }
+
+    @Benchmark
+    public void deleteRecord(DeleteTarget target) {
+        dao.deleteRecord(target.student);
+    }
+
+    @Benchmark
+    public int retrieveId() {
+        return dao.retrieveId(nextExisting());
+    }
+
+    // The legacy getData() keeps appending to its list, so each call gets a fresh DAO.
+    @Benchmark
+    public int getData() {
+        return new DbConnectivityClass(COURSE).getData().size();
+    }
+
+    @Benchmark
+    public int fetchAllStudents() throws Exception {
+        return dao.fetchAllStudents().size();
+    }
+
+    // Walks the roster with a prime stride so consecutive calls hit different rows.
+    private Student nextExisting() {
+        cursor = (cursor + 7919) % roster.size();
+        return roster.get(cursor);
+    }
+
+    // A freshly inserted row for each deleteRecord call; the insert is not part of the measurement.
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        Student student;
+
+        @Setup(Level.Invocation)
+        public void insert(DaoBenchmark benchmark) {
+            student = EmbeddedRoster.student(benchmark.nextStudent++);
+            benchmark.dao.insertUser(student);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import dao.DbConnectivityClass;
+import dao.SchemaBootstrap;
+import model.Student;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Throwaway MariaDB server for the benchmarks, started from the MariaDB4j binaries once per
+// benchmark JVM. DbConnectivityClass is pointed at it through the roster.db.* system properties,
+// so start() must run before anything touches DbConnectivityClass.
+public final class EmbeddedRoster {
+    private static final String[] FIRST_NAMES = {"Ava", "Liam", "Noah", "Emma", "Mia", "Lucas", "Zoe", "Ethan", "Aria", "Owen"};
+    private static final String[] LAST_NAMES = {"Smith", "Garcia", "Chen", "Patel", "Nguyen", "Brown", "Rossi", "Kim", "Lopez", "Khan"};
+    private static final String[] MAJORS = {"Computer Science", "Computer Information Systems", "English", "Biology", "Mathematics"};
+    private static final String[] YEARS = {"Freshman", "Sophomore", "Junior", "Senior"};
+
+    private static DB db;
+    private static String serverUrl;
+
+    private EmbeddedRoster() {
+    }
+
+    public static synchronized void start() throws ManagedProcessException {
+        if (db != null) {
+            return;
+        }
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0);
+        // mariadbd refuses to run as root unless told to
+        if ("root".equals(System.getProperty("user.name"))) {
+            config.addArg("--user=root");
+        }
+        db = DB.newEmbeddedDB(config.build());
+        db.start();
+        serverUrl = "jdbc:mariadb://localhost:" + config.getPort();
+
+        System.setProperty("roster.db.url", serverUrl);
+        System.setProperty("roster.db.user", "root");
+        System.setProperty("roster.db.password", "");
+        Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedRoster::stop));
+    }
+
+    public static synchronized void stop() {
+        if (db == null) {
+            return;
+        }
+        DbConnectivityClass.shutdownPools();
+        try {
+            db.stop();
+        } catch (ManagedProcessException e) {
+            e.printStackTrace();
+        }
+        db = null;
+    }
+
+    // Recreates the course database with rosterSize synthetic students and returns a DAO for it.
+    public static DbConnectivityClass seed(String course, int rosterSize) throws SQLException {
+        DbConnectivityClass.closePool(course);
+        SchemaBootstrap.forget(course);
+        execute(null, "DROP DATABASE IF EXISTS `" + course + "`");
+
+        DbConnectivityClass dao = new DbConnectivityClass(course);
+        dao.connectToDatabase();
+        List<Student> students = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            students.add(student(i));
+        }
+        dao.insertUsers(students);
+        return dao;
+    }
+
+    // The n-th synthetic student; emails are unique per n and every row passes StudentValidator.
+    public static Student student(int n) {
+        String first = FIRST_NAMES[n % FIRST_NAMES.length];
+        String last = LAST_NAMES[(n / FIRST_NAMES.length) % LAST_NAMES.length];
+        return new Student(null, first, last, MAJORS[n % MAJORS.length],
+                first.toLowerCase() + "." + last.toLowerCase() + n + "@farmingdale.edu", YEARS[n % YEARS.length]);
+    }
+
+    // Runs a statement outside the DAO, against a course database or the server when course is null.
+    public static void execute(String course, String sql) throws SQLException {
+        String url = course == null ? serverUrl : serverUrl + "/" + course;
+        try (Connection connection = DriverManager.getConnection(url, "root", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
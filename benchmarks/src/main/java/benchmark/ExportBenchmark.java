@@ -0,0 +1,105 @@
+package benchmark;
+
+import dao.DbConnectivityClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.CsvExportTask;
+import service.PdfExportTask;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Whole-roster CSV and PDF exports, from the database to a temporary file.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExportBenchmark {
+    private static final String COURSE = "bench_export";
+
+    @Param({"1000", "10000", "100000"})
+    int rosterSize;
+
+    private DbConnectivityClass dao;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void seed() throws Exception {
+        EmbeddedRoster.start();
+        dao = EmbeddedRoster.seed(COURSE, rosterSize);
+        target = Files.createTempFile("roster-export", ".tmp").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        target.delete();
+        EmbeddedRoster.stop();
+    }
+
+    @Benchmark
+    public long csv() throws Exception {
+        return new HeadlessCsvExport(target, dao, false).export();
+    }
+
+    @Benchmark
+    public long csvGzip() throws Exception {
+        return new HeadlessCsvExport(target, dao, true).export();
+    }
+
+    @Benchmark
+    public int pdf() throws Exception {
+        return new HeadlessPdfExport(target, dao).export();
+    }
+
+    // The export tasks report progress through the JavaFX toolkit, which the benchmark JVM does
+    // not start, so they are called directly with progress reporting switched off.
+    static class HeadlessCsvExport extends CsvExportTask {
+        HeadlessCsvExport(File file, DbConnectivityClass dao, boolean gzip) {
+            super(file, dao, gzip);
+        }
+
+        long export() throws Exception {
+            return call();
+        }
+
+        @Override
+        protected void updateProgress(long workDone, long max) {
+        }
+
+        @Override
+        protected void updateMessage(String message) {
+        }
+    }
+
+    static class HeadlessPdfExport extends PdfExportTask {
+        HeadlessPdfExport(File file, DbConnectivityClass dao) {
+            super(file, dao, COURSE);
+        }
+
+        int export() throws Exception {
+            return call();
+        }
+
+        @Override
+        protected void updateProgress(long workDone, long max) {
+        }
+
+        @Override
+        protected void updateMessage(String message) {
+        }
+    }
+}
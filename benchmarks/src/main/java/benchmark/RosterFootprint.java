@@ -0,0 +1,71 @@
+package benchmark;
+
+import model.CompactRoster;
+import model.Student;
+import model.StringDictionary;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+// Retained heap of an in-memory roster in each storage layout. JMH measures time, not footprint,
+// so this is a plain program:
+//
+//     java -cp benchmarks/target/benchmarks.jar benchmark.RosterFootprint [rows...]
+//
+// "students" is a list of Students holding one String per column, as the JDBC driver returns
+// them. "interned" is the same list with major and year shared through StringDictionary, as
+// readStudent() now builds them. "compact" is a CompactRoster.
+public final class RosterFootprint {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private RosterFootprint() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] sizes = args.length == 0 ? new int[]{100_000, 500_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        System.out.printf("%10s %10s %12s %10s%n", "rows", "layout", "retained MB", "bytes/row");
+        for (int rows : sizes) {
+            for (String layout : new String[]{"students", "interned", "compact"}) {
+                long before = usedHeap();
+                List<Student> roster = build(layout, rows);
+                long retained = usedHeap() - before;
+                System.out.printf("%10d %10s %12.1f %10d%n", roster.size(), layout,
+                        retained / (1024.0 * 1024.0), retained / rows);
+                roster = null;
+            }
+        }
+    }
+
+    private static List<Student> build(String layout, int rows) {
+        List<Student> roster = layout.equals("compact") ? new CompactRoster(rows) : new ArrayList<>(rows);
+        for (int n = 0; n < rows; n++) {
+            Student student = EmbeddedRoster.student(n);
+            // Fresh copies, like every row the driver decodes
+            String major = new String(student.getMajor());
+            String year = new String(student.getYear());
+            if (layout.equals("interned")) {
+                major = StringDictionary.MAJORS.intern(major);
+                year = StringDictionary.YEARS.intern(year);
+            }
+            roster.add(new Student(n + 1, new String(student.getFirstName()), new String(student.getLastName()),
+                    major, new String(student.getEmail()), year));
+        }
+        if (roster instanceof CompactRoster compact) {
+            compact.trimToSize();
+        }
+        return roster;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import model.CompactRoster;
+import model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of reading a whole roster back, to weigh against the memory CompactRoster saves (see
+// RosterFootprint). Each pass reads every row's major and email.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RosterScanBenchmark {
+    @Param({"100000", "500000"})
+    int rosterSize;
+
+    private List<Student> students;
+    private CompactRoster compact;
+
+    @Setup
+    public void build() {
+        students = new ArrayList<>(rosterSize);
+        compact = new CompactRoster(rosterSize);
+        for (int n = 0; n < rosterSize; n++) {
+            Student student = EmbeddedRoster.student(n);
+            student.setId(n + 1);
+            students.add(student);
+            compact.add(student);
+        }
+        compact.trimToSize();
+    }
+
+    @Benchmark
+    public int students() {
+        return scan(students);
+    }
+
+    // Through a Student view per row, as List<Student> callers see it
+    @Benchmark
+    public int compactViews() {
+        return scan(compact);
+    }
+
+    // Through the column accessors, without views
+    @Benchmark
+    public int compactColumns() {
+        int hash = 0;
+        for (int i = 0; i < compact.size(); i++) {
+            hash += compact.getMajor(i).hashCode() + compact.getEmail(i).length();
+        }
+        return hash;
+    }
+
+    private static int scan(List<Student> roster) {
+        int hash = 0;
+        for (Student student : roster) {
+            hash += student.getMajor().hashCode() + student.getEmail().length();
+        }
+        return hash;
+    }
+}
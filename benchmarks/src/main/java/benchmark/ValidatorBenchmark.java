@@ -0,0 +1,45 @@
+package benchmark;
+
+import model.Student;
+import model.StudentValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// StudentValidator runs on every imported CSV row, so its per-row cost bounds import throughput.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidatorBenchmark {
+    private Student[] students;
+    private int next;
+
+    @Setup
+    public void createStudents() {
+        students = new Student[1024];
+        for (int i = 0; i < students.length; i++) {
+            students[i] = EmbeddedRoster.student(i);
+        }
+        // A few invalid rows, as a real import has
+        students[7].setFirstName("J0hn");
+        students[99].setEmail("someone@example.com");
+    }
+
+    @Benchmark
+    public String validate() {
+        next = (next + 1) & (students.length - 1);
+        return StudentValidator.validate(students[next]);
+    }
+}
@@ -0,0 +1,173 @@
+package dao;
+
+import javafx.application.Platform;
+import model.Student;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Non-blocking face of DbConnectivityClass for the UI. Every call runs on its own virtual thread
+// and the returned future is completed on the JavaFX Application Thread, so callbacks attached
+// with thenAccept/whenComplete may touch controls directly. Concurrency against the server is
+// still capped by the connection pool.
+public class AsyncDbConnectivityClass {
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("roster-db-", 0).factory());
+
+    private final DbConnectivityClass dao;
+    // Where writes go while the server cannot be reached; null to fail them instead
+    private final EditJournal journal;
+
+    public AsyncDbConnectivityClass(DbConnectivityClass dao) {
+        this(dao, null);
+    }
+
+    public AsyncDbConnectivityClass(DbConnectivityClass dao, EditJournal journal) {
+        this.dao = dao;
+        this.journal = journal;
+    }
+
+    public DbConnectivityClass getDao() {
+        return dao;
+    }
+
+    public EditJournal getJournal() {
+        return journal;
+    }
+
+    public CompletableFuture<List<Student>> fetchAllStudents() {
+        return submit("fetchAllStudents", dao::fetchAllStudents);
+    }
+
+    public CompletableFuture<Integer> countUsers() {
+        return submit("countUsers", dao::countUsers);
+    }
+
+    public CompletableFuture<int[]> fetchPageStartIds(int pageSize) {
+        return submit("fetchPageStartIds", () -> dao.fetchPageStartIds(pageSize));
+    }
+
+    public CompletableFuture<RosterLayout> fetchLayout(int pageSize) {
+        return submit("fetchLayout", () -> dao.fetchLayout(pageSize));
+    }
+
+    public CompletableFuture<RosterDelta> fetchChangesSince(Timestamp since) {
+        return submit("fetchChangesSince", () -> dao.fetchChangesSince(since));
+    }
+
+    public CompletableFuture<Integer> countRange(int fromId, int toId) {
+        return submit("countRange", () -> dao.countRange(fromId, toId));
+    }
+
+    public CompletableFuture<List<Student>> fetchPage(int fromId, int toId) {
+        return submit("fetchPage", () -> dao.fetchPage(fromId, toId));
+    }
+
+    public CompletableFuture<List<Student>> searchStudents(String term, int limit) {
+        return submit("searchStudents", () -> dao.searchStudents(term, limit));
+    }
+
+    // Completes with the generated id, with null if the server was unreachable and the row was
+    // journaled instead, or exceptionally if the row was not inserted.
+    public CompletableFuture<Integer> insertUser(Student student) {
+        return submit("insertUser", () -> write(() -> {
+            int id = dao.insertUserOrThrow(student);
+            if (id < 0) {
+                throw new SQLException("Could not insert " + student.getEmail());
+            }
+            return id;
+        }, null, EditJournal.Entry.insert(student)));
+    }
+
+    public CompletableFuture<BulkInsertResult> insertUsers(List<Student> students, int batchSize) {
+        return submit("insertUsers", () -> dao.insertUsers(students, batchSize));
+    }
+
+    public CompletableFuture<Void> editUser(int id, Student student) {
+        return submit("editUser", () -> write(() -> {
+            dao.editUser(id, student);
+            return null;
+        }, null, EditJournal.Entry.edit(id, student)));
+    }
+
+    public CompletableFuture<Void> deleteRecord(Student student) {
+        return submit("deleteRecord", () -> write(() -> {
+            dao.deleteRecord(student);
+            return null;
+        }, null, EditJournal.Entry.delete(List.of(student.getId()))));
+    }
+
+    public CompletableFuture<Integer> deleteRecords(Collection<Integer> ids) {
+        return submit("deleteRecords", () -> write(() -> dao.deleteRecords(ids), ids.size(), EditJournal.Entry.delete(ids)));
+    }
+
+    public CompletableFuture<Integer> updateColumn(StudentColumn column, String value, Collection<Integer> ids) {
+        return submit("updateColumn", () -> write(() -> dao.updateColumn(column, value, ids), ids.size(),
+                EditJournal.Entry.update(column, value, ids)));
+    }
+
+    // Sends journaled offline writes to the server; completes with an empty replay without a journal.
+    public CompletableFuture<EditJournal.Replay> replayJournal() {
+        if (journal == null) {
+            return CompletableFuture.completedFuture(new EditJournal.Replay());
+        }
+        return submit("replayJournal", () -> journal.replay(dao));
+    }
+
+    // Runs a server write, falling back to the journal when there is one.
+    private <T> T write(EditJournal.Write<T> write, T offlineResult, EditJournal.Entry entry) throws SQLException {
+        return journal == null ? write.run() : journal.apply(write, offlineResult, entry);
+    }
+
+    public CompletableFuture<Integer> retrieveId(Student student) {
+        return submit("retrieveId", () -> dao.retrieveId(student));
+    }
+
+    // Runs work on a virtual thread and completes the future on the FX thread.
+    public static <T> CompletableFuture<T> submit(Callable<T> work) {
+        return submit(null, work);
+    }
+
+    // As above, and records the time from submission until the result reached the FX thread as
+    // "ui.<operation>". Comparing it with the DAO's own "<operation>" shows thread hand-off and
+    // FX queueing delay.
+    public static <T> CompletableFuture<T> submit(String operation, Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        OperationStats stats = operation != null ? DaoMetrics.operation("ui." + operation) : null;
+        long start = System.nanoTime();
+        EXECUTOR.execute(() -> {
+            try {
+                T value = work.call();
+                Platform.runLater(() -> {
+                    if (stats != null) {
+                        stats.record(System.nanoTime() - start, DaoMetrics.rowsOf(value));
+                    }
+                    future.complete(value);
+                });
+            } catch (Throwable t) {
+                Platform.runLater(() -> {
+                    if (stats != null) {
+                        stats.recordError(System.nanoTime() - start);
+                    }
+                    future.completeExceptionally(t);
+                });
+            }
+        });
+        return future;
+    }
+
+    // Unwraps the RuntimeException/CompletionException layers around a database error for display.
+    public static String describe(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && !(cause instanceof SQLException)) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package dao;
+
+import model.Student;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a bulk insert: how many rows made it in, and which rows were rejected and why.
+// A merge import also counts rows that updated an existing student and rows it left alone.
+// Only the first MAX_REPORTED_FAILURES rejections keep their details so huge imports stay bounded.
+public class BulkInsertResult {
+    public static final int MAX_REPORTED_FAILURES = 1000;
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    private int failed;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public List<RowFailure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void addInserted(int rows) {
+        inserted += rows;
+    }
+
+    public void addUpdated(int rows) {
+        updated += rows;
+    }
+
+    public void addUnchanged(int rows) {
+        unchanged += rows;
+    }
+
+    public void addFailure(int index, Student student, String reason) {
+        failed++;
+        if (failures.size() < MAX_REPORTED_FAILURES) {
+            failures.add(new RowFailure(index, student, reason));
+        }
+    }
+
+    // Folds a later chunk's result into this one, shifting its row indexes by offset.
+    public void merge(BulkInsertResult other, int offset) {
+        inserted += other.inserted;
+        updated += other.updated;
+        unchanged += other.unchanged;
+        for (RowFailure failure : other.failures) {
+            addFailure(failure.index + offset, failure.student, failure.reason);
+        }
+        failed += other.failed - other.failures.size();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkInsertResult{" +
+                "inserted=" + inserted +
+                ", updated=" + updated +
+                ", unchanged=" + unchanged +
+                ", failed=" + failed +
+                '}';
+    }
+
+    public static class RowFailure {
+        private final int index;
+        private final Student student;
+        private final String reason;
+
+        RowFailure(int index, Student student, String reason) {
+            this.index = index;
+            this.student = student;
+            this.reason = reason;
+        }
+
+        // Position of the row in the list that was passed to the bulk insert
+        public int getIndex() {
+            return index;
+        }
+
+        public Student getStudent() {
+            return student;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + index + (student == null ? "" : " (" + student.getEmail() + ")") + ": " + reason;
+        }
+    }
+}
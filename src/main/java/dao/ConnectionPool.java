@@ -0,0 +1,341 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Small bounded JDBC connection pool. Connections are handed out as PooledConnection
+// wrappers that keep a per-connection prepared statement cache and go back to the pool on close().
+// Uses a ReentrantLock rather than synchronized/wait so waiting virtual threads do not pin their carrier.
+// Each pool is visible over JMX while it is open, and acquire/connect/ping times go to DaoMetrics.
+public final class ConnectionPool implements ConnectionPoolMXBean {
+    private static final OperationStats ACQUIRE = DaoMetrics.operation("pool.acquire");
+    private static final OperationStats CONNECT = DaoMetrics.operation("pool.connect");
+    private static final OperationStats VALIDATE = DaoMetrics.operation("pool.validate");
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+
+    private long acquireTimeoutMillis = 30_000;
+    private long validationIntervalMillis = 500;
+    private long idleTimeoutMillis = 300_000;
+    private int validationTimeoutSeconds = 2;
+    private int statementCacheSize = 32;
+
+    // Most recently returned connection first, so the hottest connections get reused
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private int total;
+    private boolean closed;
+
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        DaoMetrics.registerPool(this);
+    }
+
+    @Override
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public int getMinSize() {
+        return minSize;
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public void setValidationIntervalMillis(long validationIntervalMillis) {
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    @Override
+    public int getTotalConnections() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getActiveConnections() {
+        lock.lock();
+        try {
+            return total - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Borrowers currently blocked because every connection is in use.
+    @Override
+    public int getWaitingThreads() {
+        lock.lock();
+        try {
+            return lock.getWaitQueueLength(available);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Opens connections until the pool holds at least minSize of them.
+    public void prefill() throws SQLException {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= minSize) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+            PooledConnection pc;
+            try {
+                pc = open();
+            } catch (SQLException e) {
+                discardSlot();
+                throw e;
+            }
+            release(pc);
+        }
+    }
+
+    public PooledConnection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            PooledConnection pc = acquire();
+            pc.lease();
+            ACQUIRE.record(System.nanoTime() - start, 0);
+            return pc;
+        } catch (SQLException e) {
+            ACQUIRE.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private PooledConnection acquire() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed: " + url);
+                    }
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pollFirst();
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLTransientConnectionException("Timed out waiting for a connection from " + url);
+                    }
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    return open();
+                } catch (SQLException e) {
+                    discardSlot();
+                    throw e;
+                }
+            }
+
+            if (isAlive(candidate)) {
+                return candidate;
+            }
+            discard(candidate);
+        }
+    }
+
+    void release(PooledConnection pc) {
+        boolean reusable = !pc.isBroken();
+        if (reusable) {
+            try {
+                Connection conn = pc.getConnection();
+                if (conn.isClosed()) {
+                    reusable = false;
+                } else if (!conn.getAutoCommit()) {
+                    // Never hand a half-finished transaction to the next borrower
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+        if (!reusable) {
+            discard(pc);
+            return;
+        }
+
+        pc.touch();
+        boolean closeIt;
+        List<PooledConnection> evicted = List.of();
+        lock.lock();
+        try {
+            closeIt = closed;
+            if (!closeIt) {
+                idle.offerFirst(pc);
+                evicted = evictIdle();
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Closing talks to the server, so it happens outside the lock
+        for (PooledConnection stale : evicted) {
+            stale.closePhysical();
+        }
+        if (closeIt) {
+            discard(pc);
+        }
+    }
+
+    public void close() {
+        Deque<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : toClose) {
+            discard(pc);
+        }
+        DaoMetrics.unregisterPool(this);
+    }
+
+    private PooledConnection open() throws SQLException {
+        long start = System.nanoTime();
+        Connection conn;
+        try {
+            conn = DriverManager.getConnection(url, username, password);
+        } catch (SQLException e) {
+            CONNECT.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        CONNECT.record(System.nanoTime() - start, 0);
+        return new PooledConnection(this, conn, statementCacheSize);
+    }
+
+    private boolean isAlive(PooledConnection pc) {
+        // Skip the ping for connections that were in use moments ago
+        if (System.currentTimeMillis() - pc.getLastUsed() < validationIntervalMillis) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            boolean valid = pc.getConnection().isValid(validationTimeoutSeconds);
+            if (valid) {
+                VALIDATE.record(System.nanoTime() - start, 0);
+            } else {
+                VALIDATE.recordError(System.nanoTime() - start);
+            }
+            return valid;
+        } catch (SQLException e) {
+            VALIDATE.recordError(System.nanoTime() - start);
+            return false;
+        }
+    }
+
+    // Takes connections that sat idle too long out of the pool, never shrinking below minSize, and
+    // returns them for the caller to close once it has let go of the lock. Caller holds the lock.
+    private List<PooledConnection> evictIdle() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && total > minSize) {
+            PooledConnection pc = it.next();
+            if (now - pc.getLastUsed() < idleTimeoutMillis) {
+                break;
+            }
+            it.remove();
+            total--;
+            evicted.add(pc);
+        }
+        return evicted;
+    }
+
+    private void discard(PooledConnection pc) {
+        discardSlot();
+        pc.closePhysical();
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package dao;
+
+// JMX view of a connection pool, registered as roster.dao:type=ConnectionPool,name=<url>.
+public interface ConnectionPoolMXBean {
+    String getUrl();
+
+    int getMinSize();
+
+    int getMaxSize();
+
+    int getTotalConnections();
+
+    int getIdleConnections();
+
+    int getActiveConnections();
+
+    int getWaitingThreads();
+}
@@ -0,0 +1,59 @@
+package dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// One DAO session per open course. A course tab and any background job working on the same course
+// share the session, its cache and its connection pool. Every acquire() must be paired with a
+// release(); the pool and the course's edit journal are closed when the last user releases the
+// course. Course names are database names and are used exactly as given, since the server may
+// treat them case-sensitively.
+public class CourseRegistry {
+    private static final Map<String, Session> SESSIONS = new HashMap<>();
+
+    public static synchronized RosterCache acquire(String course) {
+        Session session = SESSIONS.computeIfAbsent(course, name -> new Session(new RosterCache(name)));
+        session.users++;
+        return session.dao;
+    }
+
+    public static synchronized void release(String course) {
+        Session session = SESSIONS.get(course);
+        if (session == null) {
+            return;
+        }
+        if (--session.users == 0) {
+            SESSIONS.remove(course);
+            DbConnectivityClass.closePool(course);
+            EditJournal.closeJournal(course);
+        }
+    }
+
+    public static synchronized boolean isOpen(String course) {
+        return SESSIONS.containsKey(course);
+    }
+
+    public static synchronized Set<String> openCourses() {
+        return new TreeSet<>(SESSIONS.keySet());
+    }
+
+    // Drops every session, e.g. when the application exits.
+    public static synchronized void closeAll() {
+        for (String name : SESSIONS.keySet()) {
+            DbConnectivityClass.closePool(name);
+        }
+        SESSIONS.clear();
+        EditJournal.closeAll();
+    }
+
+    private static final class Session {
+        final RosterCache dao;
+        int users;
+
+        Session(RosterCache dao) {
+            this.dao = dao;
+        }
+    }
+}
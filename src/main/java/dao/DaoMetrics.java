@@ -0,0 +1,133 @@
+package dao;
+
+import service.MyLogger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Process-wide registry of data layer metrics. Every DAO operation records into an
+// OperationStats under its method name; the pool adds "pool.acquire" (waiting for a connection),
+// "pool.connect" (opening one) and "pool.validate" (a ping, i.e. network round trip), and the
+// async layer adds "ui.<operation>" for the time until the result reached the FX thread.
+// Comparing those tells network, database and UI time apart. Everything is exposed over JMX
+// and can be logged periodically with roster.metrics.logIntervalSeconds.
+public class DaoMetrics {
+    public static final String DOMAIN = "roster.dao";
+    public static final long LOG_INTERVAL_SECONDS = Long.getLong("roster.metrics.logIntervalSeconds", 0);
+
+    private static final Map<String, OperationStats> OPERATIONS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "roster-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static ScheduledFuture<?> summaryLog;
+
+    static {
+        if (LOG_INTERVAL_SECONDS > 0) {
+            startSummaryLog(LOG_INTERVAL_SECONDS);
+        }
+    }
+
+    public static OperationStats operation(String name) {
+        OperationStats stats = OPERATIONS.get(name);
+        if (stats != null) {
+            return stats;
+        }
+        return OPERATIONS.computeIfAbsent(name, key -> {
+            OperationStats created = new OperationStats(key);
+            register("type=Operation,name=" + ObjectName.quote(key), created);
+            return created;
+        });
+    }
+
+    public static Collection<OperationStats> operations() {
+        return OPERATIONS.values();
+    }
+
+    // How many rows a DAO result stands for, for the rows/second figures.
+    static long rowsOf(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        } else if (result instanceof Map<?, ?> map) {
+            return map.size();
+        } else if (result instanceof int[] ids) {
+            return ids.length;
+        } else if (result instanceof BulkInsertResult bulk) {
+            return bulk.getInserted() + bulk.getUpdated();
+        } else if (result instanceof RosterDelta delta) {
+            return delta.getChanged().size() + delta.getDeletedIds().size();
+        }
+        return 1;
+    }
+
+    static void registerPool(ConnectionPool pool) {
+        register("type=ConnectionPool,name=" + ObjectName.quote(pool.getUrl()), pool);
+    }
+
+    static void unregisterPool(ConnectionPool pool) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":type=ConnectionPool,name=" + ObjectName.quote(pool.getUrl()));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static synchronized void startSummaryLog(long intervalSeconds) {
+        stopSummaryLog();
+        summaryLog = SCHEDULER.scheduleAtFixedRate(() -> MyLogger.makeLog(DaoMetrics::summary),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopSummaryLog() {
+        if (summaryLog != null) {
+            summaryLog.cancel(false);
+            summaryLog = null;
+        }
+    }
+
+    // One line per operation that has been called, slowest p99 first.
+    public static String summary() {
+        List<OperationStats> active = new ArrayList<>();
+        for (OperationStats stats : OPERATIONS.values()) {
+            if (stats.getCount() > 0) {
+                active.add(stats);
+            }
+        }
+        active.sort(Comparator.comparingDouble(OperationStats::getP99Millis).reversed());
+        StringBuilder summary = new StringBuilder("Data layer metrics:");
+        for (OperationStats stats : active) {
+            summary.append("\n  ").append(stats);
+        }
+        return summary.toString();
+    }
+
+    private static void register(String properties, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(bean, name);
+            }
+        } catch (JMException e) {
+            // Metrics keep working without JMX
+            e.printStackTrace();
+        }
+    }
+}
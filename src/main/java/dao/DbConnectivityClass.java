@@ -2,230 +2,1064 @@ package dao;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import model.CompactRoster;
 import model.Student;
+import model.StringDictionary;
 import service.MyLogger;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
 
 public class DbConnectivityClass {
-    final static String SQL_SERVER_URL = "jdbc:mysql://csc311courseservermaz.mariadb.database.azure.com";//update this server name
-    private static String dbName = null;
-    private static String DB_URL = "jdbc:mysql://csc311courseservermaz.mariadb.database.azure.com/" + dbName;//update this database name
-    final String USERNAME = "csc311admin@csc311courseservermaz";
-    final String PASSWORD = "DataBase@123";
+    // Server and credentials can be overridden with system properties, e.g. to run against a local server
+    final static String SQL_SERVER_URL = System.getProperty("roster.db.url", "jdbc:mysql://csc311courseservermaz.mariadb.database.azure.com");//update this server name
+    final String USERNAME = System.getProperty("roster.db.user", "csc311admin@csc311courseservermaz");
+    final String PASSWORD = System.getProperty("roster.db.password", "DataBase@123");
+    // One pool per course database, shared by every DAO instance for that course
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static int poolMinSize = Integer.getInteger("roster.pool.minSize", 1);
+    private static int poolMaxSize = Integer.getInteger("roster.pool.maxSize", 8);
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("roster.import.batchSize", 500);
+    public static final long DELTA_OVERLAP_MILLIS = 5_000;
+    private static final int ROSTER_FETCH_SIZE = 1000;
+    // MySQL Connector/J ignores a positive fetch size unless useCursorFetch is set and reads the
+    // whole result into memory first; it only streams with a fetch size of Integer.MIN_VALUE
+    private static final boolean ROW_STREAMING_DRIVER = SQL_SERVER_URL.startsWith("jdbc:mysql:");
+    private static final int ID_CHUNK = 500;
     private final ObservableList<Student> data = FXCollections.observableArrayList();
+    // Course database this instance works on; fixed for its lifetime
+    private final String course;
+
+    // The application gets its instances from CourseRegistry, which keeps one session per open course.
+    public DbConnectivityClass(String course) {
+        if (course == null || course.isBlank()) {
+            throw new IllegalArgumentException("A course name is required");
+        }
+        this.course = course;
+    }
     // Method to retrieve all data from the database and store it into an observable list to use in the GUI tableview.
 
-    public static String getDbName() {
-        return dbName;
+    public static void setPoolSize(int minSize, int maxSize) {
+        poolMinSize = minSize;
+        poolMaxSize = maxSize;
+    }
+
+    // Closes every pooled connection, e.g. when the application exits.
+    public static void shutdownPools() {
+        POOLS.values().forEach(ConnectionPool::close);
+        POOLS.clear();
+    }
+
+    // Closes the pool of a course nothing uses any more. CourseRegistry calls this when the last
+    // session of a course is released.
+    public static void closePool(String course) {
+        ConnectionPool pool = POOLS.remove(SQL_SERVER_URL + "/" + course);
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    // Name of the course database this instance works on.
+    public String getCourse() {
+        return course;
+    }
+
+    private ConnectionPool pool() {
+        return POOLS.computeIfAbsent(SQL_SERVER_URL + "/" + course, u -> new ConnectionPool(u, USERNAME, PASSWORD, poolMinSize, poolMaxSize));
+    }
+
+    // The server-level pool only runs the occasional CREATE DATABASE, so it stays tiny.
+    private ConnectionPool serverPool() {
+        return POOLS.computeIfAbsent(SQL_SERVER_URL, url -> new ConnectionPool(url, USERNAME, PASSWORD, 0, 1));
     }
 
-    public static void setDbName(String db) {
-        dbName = db;
-        DB_URL = "jdbc:mysql://csc311courseservermaz.mariadb.database.azure.com/" + dbName;
+    // Body of one DAO operation; E lets streaming operations pass their sink's exceptions through.
+    private interface Work<T, E extends Exception> {
+        T run() throws E;
+    }
 
+    // Runs one DAO operation and records its latency, row count and outcome in DaoMetrics.
+    private static <T, E extends Exception> T measure(String operation, Work<T, E> work) throws E {
+        return measure(operation, DaoMetrics::rowsOf, work);
+    }
+
+    private static <T, E extends Exception> T measure(String operation, ToLongFunction<T> rows, Work<T, E> work) throws E {
+        OperationStats stats = DaoMetrics.operation(operation);
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = work.run();
+        } catch (Throwable t) {
+            stats.recordError(System.nanoTime() - start);
+            throw t;
+        }
+        stats.record(System.nanoTime() - start, rows.applyAsLong(result));
+        return result;
     }
 
     public ObservableList<Student> getData() {
-        connectToDatabase();
         try {
-            Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            String sql = "SELECT * FROM users ";
-            PreparedStatement preparedStatement = conn.prepareStatement(sql);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (!resultSet.isBeforeFirst()) {
-                MyLogger.makeLog("No data");
-            }
-            while (resultSet.next()) {
-                int id = resultSet.getInt("id");
-                String first_name = resultSet.getString("first_name");
-                String last_name = resultSet.getString("last_name");
-                String major = resultSet.getString("major");
-                String email = resultSet.getString("email");
-                String level = resultSet.getString("year");
-                data.add(new Student(id, first_name, last_name, major, email, level));
-            }
-            preparedStatement.close();
-            conn.close();
+            data.addAll(measure("getData", () -> {
+                connectToDatabase();
+                List<Student> students = new ArrayList<>();
+                try (PooledConnection conn = pool().borrow()) {
+                    String sql = "SELECT * FROM users ";
+                    PreparedStatement preparedStatement = conn.prepare(sql);
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        if (!resultSet.isBeforeFirst()) {
+                            MyLogger.makeLog("No data");
+                        }
+                        while (resultSet.next()) {
+                            students.add(readStudent(resultSet));
+                        }
+                    }
+                }
+                return students;
+            }));
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return data;
     }
 
-    public void connectToDatabase() {
-        boolean hasRegisteredUsers = false;
-
-        String createDatabaseSQL = "CREATE DATABASE IF NOT EXISTS " + dbName;
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS users (" +
-                "id INT(10) NOT NULL PRIMARY KEY AUTO_INCREMENT," +
-                "first_name VARCHAR(200) NOT NULL," +
-                "last_name VARCHAR(200) NOT NULL," +
-                "major VARCHAR(200)," +
-                "email VARCHAR(200) NOT NULL UNIQUE," +
-                "year VARCHAR(200))";
-        String countUsersSQL = "SELECT COUNT(*) FROM users";
+    // The whole roster in id order as a CompactRoster. Rows go from a server-side cursor straight
+    // into its columns, so neither a Student per row nor the full result set is ever materialized.
+    public List<Student> fetchAllStudents() throws SQLException {
+        return measure("fetchAllStudents", () -> {
+            connectToDatabase();
+            CompactRoster students = new CompactRoster();
+            try (PooledConnection conn = pool().borrow()) {
+                try (Statement statement = cursorStatement(conn, ROSTER_FETCH_SIZE)) {
+                    try (ResultSet resultSet = statement.executeQuery(
+                            "SELECT id, first_name, last_name, major, email, year FROM users ORDER BY id")) {
+                        while (resultSet.next()) {
+                            students.add(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+                                    resultSet.getString(4), resultSet.getString(5), resultSet.getString(6));
+                        }
+                    }
+                } catch (SQLException e) {
+                    conn.markBroken();
+                    throw e;
+                }
+            }
+            students.trimToSize();
+            return students;
+        });
+    }
 
-        try {
-            // Create database if not exists
-            try (Connection conn = DriverManager.getConnection(SQL_SERVER_URL, USERNAME, PASSWORD);
-                 Statement statement = conn.createStatement()) {
-                statement.executeUpdate(createDatabaseSQL);
+    // Receives one row at a time from streamUsers(). The array is reused for the next row.
+    public interface RowSink {
+        void accept(String[] row) throws Exception;
+    }
+
+    // Streams the whole table in id order through a server-side cursor: rows are pulled from the
+    // server fetchSize at a time and handed over as plain column values, so no Student objects or
+    // full result set are ever held in memory. Columns are ID, first name, last name, major,
+    // email, year. Returns the number of rows streamed.
+    public long streamUsers(int fetchSize, RowSink sink) throws Exception {
+        return measure("streamUsers", Long::longValue, () -> {
+            connectToDatabase();
+            long rows = 0;
+            try (PooledConnection conn = pool().borrow()) {
+                try (Statement statement = cursorStatement(conn, fetchSize)) {
+                    try (ResultSet resultSet = statement.executeQuery(
+                            "SELECT id, first_name, last_name, major, email, year FROM users ORDER BY id")) {
+                        String[] row = new String[6];
+                        while (resultSet.next()) {
+                            for (int i = 0; i < row.length; i++) {
+                                row[i] = resultSet.getString(i + 1);
+                            }
+                            sink.accept(row);
+                            rows++;
+                        }
+                    }
+                } catch (Exception e) {
+                    // Don't hand a connection whose stream was cut short back to the pool
+                    conn.markBroken();
+                    throw e;
+                }
             }
+            return rows;
+        });
+    }
+
+    // A forward-only, read-only statement whose results come from the server as they are read,
+    // fetchSize rows at a time, or row by row where the driver can only stream that way.
+    private static Statement cursorStatement(PooledConnection conn, int fetchSize) throws SQLException {
+        Statement statement = conn.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(ROW_STREAMING_DRIVER ? Integer.MIN_VALUE : fetchSize);
+        return statement;
+    }
 
-            // Create users table if not exists and check for registered users
-            try (Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-                 Statement statement = conn.createStatement()) {
-                statement.executeUpdate(createTableSQL);
+    // Every database on the server that holds a roster, i.e. every course.
+    public List<String> listCourses() throws SQLException {
+        return measure("listCourses", () -> {
+            List<String> courses = new ArrayList<>();
+            try (PooledConnection conn = serverPool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare("SELECT table_schema FROM information_schema.tables " +
+                        "WHERE table_name = 'users' ORDER BY table_schema");
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        courses.add(resultSet.getString(1));
+                    }
+                }
+            }
+            return courses;
+        });
+    }
 
-                ResultSet resultSet = statement.executeQuery(countUsersSQL);
-                if (resultSet.next() && resultSet.getInt(1) > 0) {
-                    hasRegisteredUsers = true;
+    public Map<String, Integer> countByMajor() throws SQLException {
+        return measure("countByMajor", () -> {
+            connectToDatabase();
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare("SELECT major, COUNT(*) FROM users GROUP BY major ORDER BY major");
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        counts.put(resultSet.getString(1), resultSet.getInt(2));
+                    }
                 }
             }
+            return counts;
+        });
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    public int countUsers() throws SQLException {
+        return measure("countUsers", () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare("SELECT COUNT(*) FROM users");
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getInt(1) : 0;
+                }
+            }
+        });
+    }
+
+    // Returns the id of the first row of every page of pageSize rows, in id order. Only the
+    // boundaries leave the server, so this stays cheap even for very large tables.
+    public int[] fetchPageStartIds(int pageSize) throws SQLException {
+        return measure("fetchPageStartIds", () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                return fetchPageStartIds(conn, pageSize);
+            }
+        });
+    }
+
+    private static int[] fetchPageStartIds(PooledConnection conn, int pageSize) throws SQLException {
+        String sql = "SELECT id FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS rn FROM users) numbered " +
+                "WHERE MOD(rn - 1, ?) = 0 ORDER BY id";
+        PreparedStatement preparedStatement = conn.prepare(sql);
+        preparedStatement.setInt(1, pageSize);
+        List<Integer> ids = new ArrayList<>();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
+            }
         }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
 
+    // Count, page boundaries, highest id and server time, all read from one consistent snapshot
+    // so that a delta sync from the returned watermark neither misses nor double-counts rows.
+    public RosterLayout fetchLayout(int pageSize) throws SQLException {
+        return measure("fetchLayout", () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                Connection connection = conn.getConnection();
+                connection.setAutoCommit(false);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+                }
+                Timestamp watermark;
+                int total;
+                int maxId;
+                PreparedStatement header = conn.prepare("SELECT NOW(6), COUNT(*), COALESCE(MAX(id), 0) FROM users");
+                try (ResultSet resultSet = header.executeQuery()) {
+                    resultSet.next();
+                    watermark = resultSet.getTimestamp(1);
+                    total = resultSet.getInt(2);
+                    maxId = resultSet.getInt(3);
+                }
+                int[] startIds = fetchPageStartIds(conn, pageSize);
+                connection.commit();
+                return new RosterLayout(total, startIds, maxId, watermark);
+            }
+        });
     }
 
-    public void queryUserByLastName(String name) {
-        connectToDatabase();
-        try {
-            Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            String sql = "SELECT * FROM users WHERE last_name = ?";
-            PreparedStatement preparedStatement = conn.prepareStatement(sql);
-            preparedStatement.setString(1, name);
+    // The server's clock, as used for watermarks.
+    public Timestamp fetchServerTime() throws SQLException {
+        return measure("fetchServerTime", () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                try (ResultSet resultSet = conn.prepare("SELECT NOW(6)").executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getTimestamp(1);
+                }
+            }
+        });
+    }
 
-            ResultSet resultSet = preparedStatement.executeQuery();
+    // Rows changed and ids deleted since the watermark. The window reaches DELTA_OVERLAP_MILLIS
+    // further back so that transactions which committed late are not missed.
+    public RosterDelta fetchChangesSince(Timestamp since) throws SQLException {
+        return measure("fetchChangesSince", () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                Timestamp watermark;
+                int maxId;
+                PreparedStatement header = conn.prepare("SELECT NOW(6), (SELECT COALESCE(MAX(id), 0) FROM users)");
+                try (ResultSet resultSet = header.executeQuery()) {
+                    resultSet.next();
+                    watermark = resultSet.getTimestamp(1);
+                    maxId = resultSet.getInt(2);
+                }
+                Timestamp from = new Timestamp(since.getTime() - DELTA_OVERLAP_MILLIS);
 
-            while (resultSet.next()) {
-                int id = resultSet.getInt("id");
-                String first_name = resultSet.getString("first_name");
-                String last_name = resultSet.getString("last_name");
-                String major = resultSet.getString("major");
-                String level = resultSet.getString("year");
+                List<Student> changed = new ArrayList<>();
+                PreparedStatement updated = conn.prepare("SELECT * FROM users WHERE updated_at >= ? ORDER BY id");
+                updated.setTimestamp(1, from);
+                try (ResultSet resultSet = updated.executeQuery()) {
+                    while (resultSet.next()) {
+                        changed.add(readStudent(resultSet));
+                    }
+                }
+
+                List<Integer> deleted = new ArrayList<>();
+                PreparedStatement tombstones = conn.prepare("SELECT id FROM users_deleted WHERE deleted_at >= ? ORDER BY id");
+                tombstones.setTimestamp(1, from);
+                try (ResultSet resultSet = tombstones.executeQuery()) {
+                    while (resultSet.next()) {
+                        deleted.add(resultSet.getInt(1));
+                    }
+                }
+                return new RosterDelta(changed, deleted, maxId, watermark);
+            }
+        });
+    }
+
+    public int countRange(int fromId, int toId) throws SQLException {
+        return measure("countRange", () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare("SELECT COUNT(*) FROM users WHERE id >= ? AND id < ?");
+                preparedStatement.setInt(1, fromId);
+                preparedStatement.setInt(2, toId);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getInt(1) : 0;
+                }
+            }
+        });
+    }
+
+    // Keyset page: every row with fromId <= id < toId, in id order.
+    public List<Student> fetchPage(int fromId, int toId) throws SQLException {
+        return measure("fetchPage", () -> {
+            connectToDatabase();
+            List<Student> page = new ArrayList<>();
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare("SELECT * FROM users WHERE id >= ? AND id < ? ORDER BY id");
+                preparedStatement.setInt(1, fromId);
+                preparedStatement.setInt(2, toId);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        page.add(readStudent(resultSet));
+                    }
+                }
+            }
+            return page;
+        });
+    }
+
+    private static Student readStudent(ResultSet resultSet) throws SQLException {
+        int id = resultSet.getInt("id");
+        String first_name = resultSet.getString("first_name");
+        String last_name = resultSet.getString("last_name");
+        // Every row shares one copy of each major and year instead of a fresh String from the driver
+        String major = StringDictionary.MAJORS.intern(resultSet.getString("major"));
+        String email = resultSet.getString("email");
+        String level = StringDictionary.YEARS.intern(resultSet.getString("year"));
+        return new Student(id, first_name, last_name, major, email, level);
+    }
+
+    // Creates and migrates this course database the first time it is used in this process.
+    public void connectToDatabase() {
+        try {
+            SchemaBootstrap.ensure(course, serverPool(), pool());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
-                MyLogger.makeLog("ID: " + id + ", Name: " + first_name + " " + last_name + " "
-                        + ", Major: " + major + ", year: " + level);
+    public void queryUserByLastName(String name) {
+        try {
+            for (Student student : findByLastName(name)) {
+                // Student is mutable, so the log gets its current field values rather than the object
+                MyLogger.makeLog("ID: {}, Name: {} {} , Major: {}, year: {}", student.getId(), student.getFirstName(),
+                        student.getLastName(), student.getMajor(), student.getYear());
             }
-            preparedStatement.close();
-            conn.close();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    public List<Student> findByLastName(String lastName) throws SQLException {
+        return findWhere("findByLastName", "SELECT * FROM users WHERE last_name = ?", lastName);
+    }
+
+    // Returns null when no row has this id.
+    public Student findById(int id) throws SQLException {
+        return measure("findById", () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare("SELECT * FROM users WHERE id = ?");
+                preparedStatement.setInt(1, id);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return resultSet.next() ? readStudent(resultSet) : null;
+                }
+            }
+        });
+    }
+
+    // Returns null when no row has this email.
+    public Student findByEmail(String email) throws SQLException {
+        List<Student> matches = findWhere("findByEmail", "SELECT * FROM users WHERE email = ?", email);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    // Case-insensitive search across first name, last name, email and major, at most limit rows.
+    // Prefix matches come first and are answered from the column indexes; only when those do not
+    // fill the limit is the (unindexed) substring match run, and it stops at the remaining limit.
+    public List<Student> searchStudents(String term, int limit) throws SQLException {
+        return measure("searchStudents", () -> {
+            List<Student> results = new ArrayList<>();
+            String trimmed = term == null ? "" : term.trim();
+            if (trimmed.isEmpty() || limit <= 0) {
+                return results;
+            }
+            connectToDatabase();
+            String escaped = trimmed.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            // Each branch is an index range scan capped at limit rows
+            String prefixSql = "SELECT users.* FROM (" +
+                    "(SELECT id FROM users WHERE last_name LIKE ? ORDER BY last_name LIMIT ?) UNION " +
+                    "(SELECT id FROM users WHERE first_name LIKE ? ORDER BY first_name LIMIT ?) UNION " +
+                    "(SELECT id FROM users WHERE email LIKE ? ORDER BY email LIMIT ?) UNION " +
+                    "(SELECT id FROM users WHERE major LIKE ? ORDER BY major LIMIT ?)) matches " +
+                    "JOIN users ON users.id = matches.id ORDER BY users.last_name, users.first_name LIMIT ?";
+            // major is nullable, and a NULL inside NOT (...) would drop the row
+            String substringSql = "SELECT * FROM users WHERE CONCAT_WS(' ', first_name, last_name, email, major) LIKE ? " +
+                    "AND NOT (last_name LIKE ? OR first_name LIKE ? OR email LIKE ? OR IFNULL(major, '') LIKE ?) LIMIT ?";
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement prefix = conn.prepare(prefixSql);
+                for (int i = 0; i < 4; i++) {
+                    prefix.setString(2 * i + 1, escaped + "%");
+                    prefix.setInt(2 * i + 2, limit);
+                }
+                prefix.setInt(9, limit);
+                try (ResultSet resultSet = prefix.executeQuery()) {
+                    while (resultSet.next()) {
+                        results.add(readStudent(resultSet));
+                    }
+                }
+
+                if (results.size() < limit) {
+                    PreparedStatement substring = conn.prepare(substringSql);
+                    substring.setString(1, "%" + escaped + "%");
+                    for (int i = 2; i <= 5; i++) {
+                        substring.setString(i, escaped + "%");
+                    }
+                    substring.setInt(6, limit - results.size());
+                    try (ResultSet resultSet = substring.executeQuery()) {
+                        while (resultSet.next()) {
+                            results.add(readStudent(resultSet));
+                        }
+                    }
+                }
+            }
+            return results;
+        });
+    }
+
+    private List<Student> findWhere(String operation, String sql, String value) throws SQLException {
+        return measure(operation, () -> {
+            connectToDatabase();
+            List<Student> students = new ArrayList<>();
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare(sql);
+                preparedStatement.setString(1, value);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        students.add(readStudent(resultSet));
+                    }
+                }
+            }
+            return students;
+        });
+    }
+
     public void listAllUsers() {
-        connectToDatabase();
         try {
-            Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            String sql = "SELECT * FROM users ";
-            PreparedStatement preparedStatement = conn.prepareStatement(sql);
+            measure("listAllUsers", Integer::longValue, () -> {
+                connectToDatabase();
+                int rows = 0;
+                // Skip decoding the columns at all when nothing would be logged
+                boolean logRows = MyLogger.isLoggable(Level.INFO);
+                try (PooledConnection conn = pool().borrow()) {
+                    String sql = "SELECT * FROM users ";
+                    PreparedStatement preparedStatement = conn.prepare(sql);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            rows++;
+                            if (!logRows) {
+                                continue;
+                            }
+                            int id = resultSet.getInt("id");
+                            String first_name = resultSet.getString("first_name");
+                            String last_name = resultSet.getString("last_name");
+                            String level = resultSet.getString("year");
+                            String major = resultSet.getString("major");
+                            String email = resultSet.getString("email");
 
-            while (resultSet.next()) {
-                int id = resultSet.getInt("id");
-                String first_name = resultSet.getString("first_name");
-                String last_name = resultSet.getString("last_name");
-                String level = resultSet.getString("year");
-                String major = resultSet.getString("major");
-                String email = resultSet.getString("email");
+                            MyLogger.makeLog("ID: {}, Name: {} {} , Level: {}, Major: {}, Email: {}",
+                                    id, first_name, last_name, level, major, email);
+                        }
+                    }
+                }
+                return rows;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Inserts the student and stores the auto-increment id the server assigned on it.
+    // Returns that id, or -1 if the insert failed.
+    public int insertUser(Student student) {
+        try {
+            return insertUserOrThrow(student);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
 
-                MyLogger.makeLog("ID: " + id + ", Name: " + first_name + " " + last_name + " "
-                        + ", Level: " + level + ", Major: " + major + ", Email: " + email);
+    // As insertUser, but a failure to reach the server is thrown instead of reported as -1, so the
+    // caller can tell it from a rejected row.
+    int insertUserOrThrow(Student student) throws SQLException {
+        return measure("insertUser", id -> id < 0 ? 0 : 1, () -> {
+            connectToDatabase();
+            try (PooledConnection conn = pool().borrow()) {
+                PreparedStatement preparedStatement = conn.prepare(multiRowInsertSql(1), Statement.RETURN_GENERATED_KEYS);
+                bindRows(preparedStatement, List.of(student));
+                int row = preparedStatement.executeUpdate();
+                if (row > 0) {
+                    assignGeneratedIds(preparedStatement, List.of(student));
+                    MyLogger.makeLog("A new user was inserted successfully.");
+                    return student.getId();
+                }
             }
+            return -1;
+        });
+    }
 
-            preparedStatement.close();
-            conn.close();
+    public BulkInsertResult insertUsers(List<Student> students) {
+        return insertUsers(students, DEFAULT_BATCH_SIZE);
+    }
+
+    // Inserts the rows in chunks of batchSize: one multi-row INSERT and one commit per chunk.
+    // Generated ids are written back onto the Student objects that were inserted.
+    // A chunk that hits a constraint (e.g. a duplicate email) is replayed row by row so that
+    // only the offending rows are reported as failures and the rest are still committed.
+    public BulkInsertResult insertUsers(List<Student> students, int batchSize) {
+        BulkInsertResult result = new BulkInsertResult();
+        try {
+            insertUsers(students, batchSize, result);
         } catch (SQLException e) {
             e.printStackTrace();
+            for (int i = result.getInserted() + result.getFailed(); i < students.size(); i++) {
+                result.addFailure(i, students.get(i), e.getMessage());
+            }
         }
+        return result;
     }
 
-    public void insertUser(Student student) {
+    // As insertUsers, but an error other than a rejected row is thrown. Chunks committed before it
+    // stay committed.
+    BulkInsertResult insertUsersOrThrow(List<Student> students, int batchSize) throws SQLException {
+        BulkInsertResult result = new BulkInsertResult();
+        insertUsers(students, batchSize, result);
+        return result;
+    }
+
+    // Adds each chunk's outcome to result once the chunk is committed, so on an error result covers
+    // exactly the rows before the failed chunk.
+    void insertUsers(List<Student> students, int batchSize, BulkInsertResult result) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (students.isEmpty()) {
+            return;
+        }
+        // Recorded by hand, so rows/second counts only the rows that went in
+        OperationStats stats = DaoMetrics.operation("insertUsers");
+        long start = System.nanoTime();
         connectToDatabase();
+        int next = 0;
+        try (PooledConnection conn = pool().borrow()) {
+            Connection connection = conn.getConnection();
+            connection.setAutoCommit(false);
+            while (next < students.size()) {
+                int to = Math.min(next + batchSize, students.size());
+                List<Student> chunk = students.subList(next, to);
+                try {
+                    PreparedStatement preparedStatement = conn.prepare(multiRowInsertSql(chunk.size()), Statement.RETURN_GENERATED_KEYS);
+                    bindRows(preparedStatement, chunk);
+                    preparedStatement.executeUpdate();
+                    assignGeneratedIds(preparedStatement, chunk);
+                    connection.commit();
+                    result.addInserted(chunk.size());
+                } catch (SQLException e) {
+                    if (!isConstraintViolation(e)) {
+                        throw e;
+                    }
+                    connection.rollback();
+                    BulkInsertResult chunkResult = new BulkInsertResult();
+                    insertRowByRow(conn, chunk, 0, chunkResult);
+                    connection.commit();
+                    result.merge(chunkResult, next);
+                }
+                next = to;
+            }
+            MyLogger.makeLog("Bulk insert finished: " + result);
+            stats.record(System.nanoTime() - start, result.getInserted());
+        } catch (SQLException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private void insertRowByRow(PooledConnection conn, List<Student> chunk, int offset, BulkInsertResult result) throws SQLException {
+        PreparedStatement preparedStatement = conn.prepare(multiRowInsertSql(1), Statement.RETURN_GENERATED_KEYS);
+        for (int i = 0; i < chunk.size(); i++) {
+            Student student = chunk.get(i);
+            try {
+                bindRows(preparedStatement, List.of(student));
+                preparedStatement.executeUpdate();
+                assignGeneratedIds(preparedStatement, List.of(student));
+                result.addInserted(1);
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                result.addFailure(offset + i, student, e.getMessage());
+            }
+        }
+    }
+
+    private static String multiRowInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO users (first_name, last_name, major, email, year) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private static void bindRows(PreparedStatement preparedStatement, List<Student> rows) throws SQLException {
+        int param = 1;
+        for (Student student : rows) {
+            preparedStatement.setString(param++, student.getFirstName());
+            preparedStatement.setString(param++, student.getLastName());
+            preparedStatement.setString(param++, student.getMajor());
+            preparedStatement.setString(param++, student.getEmail());
+            preparedStatement.setString(param++, student.getYear());
+        }
+    }
+
+    // A multi-row INSERT returns one key per row, in the order the rows were bound.
+    private static void assignGeneratedIds(PreparedStatement preparedStatement, List<Student> rows) throws SQLException {
+        try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+            for (Student student : rows) {
+                if (!keys.next()) {
+                    break;
+                }
+                student.setId(keys.getInt(1));
+            }
+        }
+    }
+
+    // SQLState class 23 covers UNIQUE and NOT NULL violations
+    private static boolean isConstraintViolation(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
+    }
+
+    public BulkInsertResult mergeUsers(List<Student> students) {
+        return mergeUsers(students, DEFAULT_BATCH_SIZE);
+    }
+
+    // Merge import keyed on email: new emails are inserted, known ones overwrite the stored student.
+    // Each chunk first reads the stored rows for its emails and compares content hashes, so rows
+    // that would not change are counted as unchanged and never written. The rest go out as one
+    // multi-row INSERT ... ON DUPLICATE KEY UPDATE and one commit per chunk; a refresh where
+    // nothing changed costs one indexed SELECT per chunk. Updated and unchanged rows get their
+    // stored id; ids of inserted rows are not read back.
+    public BulkInsertResult mergeUsers(List<Student> students, int batchSize) {
+        BulkInsertResult result = new BulkInsertResult();
         try {
-            Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            String sql = "INSERT INTO users (first_name, last_name, major, email, year) VALUES (?, ?, ?, ?, ?)";
-            PreparedStatement preparedStatement = conn.prepareStatement(sql);
-            preparedStatement.setString(1, student.getFirstName());
-            preparedStatement.setString(2, student.getLastName());
-            preparedStatement.setString(3, student.getMajor());
-            preparedStatement.setString(4, student.getEmail());
-            preparedStatement.setString(5, student.getYear());
-            int row = preparedStatement.executeUpdate();
-            if (row > 0) {
-                MyLogger.makeLog("A new user was inserted successfully.");
-            }
-            preparedStatement.close();
-            conn.close();
+            mergeUsers(students, batchSize, result);
         } catch (SQLException e) {
             e.printStackTrace();
+            int done = result.getInserted() + result.getUpdated() + result.getUnchanged() + result.getFailed();
+            for (int i = done; i < students.size(); i++) {
+                result.addFailure(i, students.get(i), e.getMessage());
+            }
         }
+        return result;
     }
 
-    public void editUser(int id, Student p) {
+    // Adds each chunk's outcome to result once the chunk is committed, as insertUsers does.
+    void mergeUsers(List<Student> students, int batchSize, BulkInsertResult result) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (students.isEmpty()) {
+            return;
+        }
+        OperationStats stats = DaoMetrics.operation("mergeUsers");
+        long start = System.nanoTime();
         connectToDatabase();
+        int next = 0;
+        try (PooledConnection conn = pool().borrow()) {
+            Connection connection = conn.getConnection();
+            connection.setAutoCommit(false);
+            while (next < students.size()) {
+                int to = Math.min(next + batchSize, students.size());
+                List<Student> chunk = students.subList(next, to);
+                Map<String, StoredRow> stored = findByEmail(conn, chunk);
+
+                BulkInsertResult chunkResult = new BulkInsertResult();
+                List<Student> changed = new ArrayList<>();
+                List<Integer> positions = new ArrayList<>();
+                List<Boolean> isNew = new ArrayList<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    Student student = chunk.get(i);
+                    String email = emailKey(student.getEmail());
+                    long hash = contentHash(student.getFirstName(), student.getLastName(), student.getMajor(),
+                            student.getEmail(), student.getYear());
+                    StoredRow row = stored.get(email);
+                    if (row != null && row.id != 0) {
+                        student.setId(row.id);
+                    }
+                    if (row != null && row.hash == hash) {
+                        chunkResult.addUnchanged(1);
+                        continue;
+                    }
+                    changed.add(student);
+                    positions.add(i);
+                    isNew.add(row == null);
+                    // A later row of the file with the same email compares against this one
+                    stored.put(email, new StoredRow(row == null ? 0 : row.id, hash));
+                }
+
+                try {
+                    if (!changed.isEmpty()) {
+                        PreparedStatement preparedStatement = conn.prepare(upsertSql(changed.size()));
+                        bindRows(preparedStatement, changed);
+                        preparedStatement.executeUpdate();
+                    }
+                    connection.commit();
+                    int inserted = (int) isNew.stream().filter(Boolean::booleanValue).count();
+                    chunkResult.addInserted(inserted);
+                    chunkResult.addUpdated(changed.size() - inserted);
+                } catch (SQLException e) {
+                    if (!isConstraintViolation(e)) {
+                        throw e;
+                    }
+                    // Replay row by row so only the offending rows are rejected
+                    connection.rollback();
+                    PreparedStatement preparedStatement = conn.prepare(upsertSql(1));
+                    for (int j = 0; j < changed.size(); j++) {
+                        Student student = changed.get(j);
+                        try {
+                            bindRows(preparedStatement, List.of(student));
+                            preparedStatement.executeUpdate();
+                            if (isNew.get(j)) {
+                                chunkResult.addInserted(1);
+                            } else {
+                                chunkResult.addUpdated(1);
+                            }
+                        } catch (SQLException rowError) {
+                            if (!isConstraintViolation(rowError)) {
+                                throw rowError;
+                            }
+                            chunkResult.addFailure(positions.get(j), student, rowError.getMessage());
+                        }
+                    }
+                    connection.commit();
+                }
+                result.merge(chunkResult, next);
+                next = to;
+            }
+            MyLogger.makeLog("Merge import finished: " + result);
+            stats.record(System.nanoTime() - start, result.getInserted() + result.getUpdated());
+        } catch (SQLException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    // Id and content hash of the stored rows for the chunk's emails, keyed by lower-cased email
+    private static Map<String, StoredRow> findByEmail(PooledConnection conn, List<Student> chunk) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, first_name, last_name, major, email, year FROM users WHERE email IN (");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        PreparedStatement preparedStatement = conn.prepare(sql.append(")").toString());
+        for (int i = 0; i < chunk.size(); i++) {
+            preparedStatement.setString(i + 1, chunk.get(i).getEmail());
+        }
+        Map<String, StoredRow> stored = new HashMap<>();
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                String email = resultSet.getString("email");
+                stored.put(emailKey(email), new StoredRow(resultSet.getInt("id"), contentHash(resultSet.getString("first_name"),
+                        resultSet.getString("last_name"), resultSet.getString("major"), email, resultSet.getString("year"))));
+            }
+        }
+        return stored;
+    }
+
+    // Email is also updated, so a change in its case reaches the server
+    private static String upsertSql(int rows) {
+        return multiRowInsertSql(rows) + " ON DUPLICATE KEY UPDATE first_name = VALUES(first_name), " +
+                "last_name = VALUES(last_name), major = VALUES(major), email = VALUES(email), year = VALUES(year)";
+    }
+
+    // The UNIQUE email index compares case-insensitively under the server's default collation
+    private static String emailKey(String email) {
+        return email == null ? "" : email.toLowerCase(Locale.ROOT);
+    }
+
+    // 64-bit FNV-1a over the column values, with a separator after each and a marker for null
+    static long contentHash(String... values) {
+        long hash = 0xcbf29ce484222325L;
+        for (String value : values) {
+            if (value == null) {
+                hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+            } else {
+                for (int i = 0; i < value.length(); i++) {
+                    hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+                }
+            }
+            hash = (hash ^ 0x1F) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class StoredRow {
+        final int id;
+        final long hash;
+
+        StoredRow(int id, long hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+    }
+
+    public void editUser(int id, Student p) {
         try {
-            Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            String sql = "UPDATE users SET first_name=?, last_name=?, major=?, email=?, year=? WHERE id=?";
-            PreparedStatement preparedStatement = conn.prepareStatement(sql);
-            preparedStatement.setString(1, p.getFirstName());
-            preparedStatement.setString(2, p.getLastName());
-            preparedStatement.setString(3, p.getMajor());
-            preparedStatement.setString(4, p.getEmail());
-            preparedStatement.setString(5, p.getYear());
-            preparedStatement.setInt(6, id);
-            preparedStatement.executeUpdate();
-            preparedStatement.close();
-            conn.close();
+            measure("editUser", Integer::longValue, () -> {
+                connectToDatabase();
+                try (PooledConnection conn = pool().borrow()) {
+                    String sql = "UPDATE users SET first_name=?, last_name=?, major=?, email=?, year=? WHERE id=?";
+                    PreparedStatement preparedStatement = conn.prepare(sql);
+                    preparedStatement.setString(1, p.getFirstName());
+                    preparedStatement.setString(2, p.getLastName());
+                    preparedStatement.setString(3, p.getMajor());
+                    preparedStatement.setString(4, p.getEmail());
+                    preparedStatement.setString(5, p.getYear());
+                    preparedStatement.setInt(6, id);
+                    return preparedStatement.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    // Applies column-level changes keyed by row id in one transaction, with one batched UPDATE per
+    // distinct set of changed columns. Rows whose update violates a constraint are skipped and
+    // returned with the reason; everything else is committed.
+    public Map<Integer, String> updateColumns(Map<Integer, ? extends Map<StudentColumn, String>> changes) throws SQLException {
+        return measure("updateColumns", rejected -> changes.size() - rejected.size(), () -> {
+            Map<Integer, String> rejected = new LinkedHashMap<>();
+            if (changes.isEmpty()) {
+                return rejected;
+            }
+            connectToDatabase();
+            Map<Set<StudentColumn>, List<Integer>> groups = new LinkedHashMap<>();
+            for (Map.Entry<Integer, ? extends Map<StudentColumn, String>> entry : changes.entrySet()) {
+                Set<StudentColumn> columns = EnumSet.copyOf(entry.getValue().keySet());
+                groups.computeIfAbsent(columns, k -> new ArrayList<>()).add(entry.getKey());
+            }
+
+            try (PooledConnection conn = pool().borrow()) {
+                Connection connection = conn.getConnection();
+                connection.setAutoCommit(false);
+                try {
+                    for (Map.Entry<Set<StudentColumn>, List<Integer>> group : groups.entrySet()) {
+                        PreparedStatement preparedStatement = conn.prepare(updateColumnsSql(group.getKey()));
+                        for (Integer id : group.getValue()) {
+                            bindColumns(preparedStatement, group.getKey(), changes.get(id), id);
+                            preparedStatement.addBatch();
+                        }
+                        preparedStatement.executeBatch();
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    if (!isConstraintViolation(e) && !(e instanceof BatchUpdateException)) {
+                        throw e;
+                    }
+                    // Replay row by row to find out which rows were at fault
+                    connection.rollback();
+                    for (Map.Entry<Set<StudentColumn>, List<Integer>> group : groups.entrySet()) {
+                        PreparedStatement preparedStatement = conn.prepare(updateColumnsSql(group.getKey()));
+                        preparedStatement.clearBatch();
+                        for (Integer id : group.getValue()) {
+                            try {
+                                bindColumns(preparedStatement, group.getKey(), changes.get(id), id);
+                                preparedStatement.executeUpdate();
+                            } catch (SQLException rowError) {
+                                if (!isConstraintViolation(rowError)) {
+                                    throw rowError;
+                                }
+                                rejected.put(id, rowError.getMessage());
+                            }
+                        }
+                    }
+                    connection.commit();
+                }
+            }
+            return rejected;
+        });
+    }
+
+    private static String updateColumnsSql(Set<StudentColumn> columns) {
+        StringBuilder sql = new StringBuilder("UPDATE users SET ");
+        boolean first = true;
+        for (StudentColumn column : columns) {
+            sql.append(first ? "" : ", ").append(column.getColumnName()).append(" = ?");
+            first = false;
+        }
+        return sql.append(" WHERE id = ?").toString();
+    }
+
+    private static void bindColumns(PreparedStatement preparedStatement, Set<StudentColumn> columns,
+                                    Map<StudentColumn, String> values, int id) throws SQLException {
+        int param = 1;
+        for (StudentColumn column : columns) {
+            preparedStatement.setString(param++, values.get(column));
+        }
+        preparedStatement.setInt(param, id);
+    }
+
     public void deleteRecord(Student student) {
         if (student == null) {
             return;
         }
         int id = student.getId();
-        connectToDatabase();
         try {
-            Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            String sql = "DELETE FROM users WHERE id=?";
-            PreparedStatement preparedStatement = conn.prepareStatement(sql);
-            preparedStatement.setInt(1, id);
-            preparedStatement.executeUpdate();
-            preparedStatement.close();
-            conn.close();
+            measure("deleteRecord", Integer::longValue, () -> {
+                connectToDatabase();
+                try (PooledConnection conn = pool().borrow()) {
+                    String sql = "DELETE FROM users WHERE id=?";
+                    PreparedStatement preparedStatement = conn.prepare(sql);
+                    preparedStatement.setInt(1, id);
+                    return preparedStatement.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    // Deletes every listed row in one transaction and returns how many were deleted.
+    public int deleteRecords(Collection<Integer> ids) throws SQLException {
+        return measure("deleteRecords", Integer::longValue,
+                () -> executeForIds("DELETE FROM users WHERE id IN ", false, null, ids));
+    }
+
+    // Sets one column to the same value on every listed row in one transaction, e.g. a new major
+    // for a group of students, and returns how many rows changed.
+    public int updateColumn(StudentColumn column, String value, Collection<Integer> ids) throws SQLException {
+        return measure("updateColumn", Integer::longValue,
+                () -> executeForIds("UPDATE users SET " + column.getColumnName() + " = ? WHERE id IN ", true, value, ids));
+    }
+
+    // Runs sqlPrefix + "(?, ...)" over the ids, ID_CHUNK ids per execution. The last chunk is padded
+    // by repeating an id, so every call uses the same cached statement.
+    private int executeForIds(String sqlPrefix, boolean bindValue, String value, Collection<Integer> ids) throws SQLException {
+        int[] distinct = ids.stream().mapToInt(Integer::intValue).distinct().toArray();
+        if (distinct.length == 0) {
+            return 0;
+        }
+        connectToDatabase();
+        String sql = sqlPrefix + "(" + "?, ".repeat(ID_CHUNK - 1) + "?)";
+        int affected = 0;
+        try (PooledConnection conn = pool().borrow()) {
+            Connection connection = conn.getConnection();
+            connection.setAutoCommit(false);
+            PreparedStatement preparedStatement = conn.prepare(sql);
+            for (int from = 0; from < distinct.length; from += ID_CHUNK) {
+                int param = 1;
+                if (bindValue) {
+                    preparedStatement.setString(param++, value);
+                }
+                for (int i = 0; i < ID_CHUNK; i++) {
+                    preparedStatement.setInt(param++, distinct[Math.min(from + i, distinct.length - 1)]);
+                }
+                affected += preparedStatement.executeUpdate();
+            }
+            connection.commit();
+        }
+        return affected;
+    }
+
     //Method to retrieve id from database where it is auto-incremented.
     public int retrieveId(Student p) {
-        connectToDatabase();
         int id;
         try {
-            Connection conn = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            String sql = "SELECT id FROM users WHERE email=?";
-            PreparedStatement preparedStatement = conn.prepareStatement(sql);
-            preparedStatement.setString(1, p.getEmail());
-
-            ResultSet resultSet = preparedStatement.executeQuery();
-            resultSet.next();
-            id = resultSet.getInt("id");
-            preparedStatement.close();
-            conn.close();
+            id = measure("retrieveId", () -> {
+                connectToDatabase();
+                try (PooledConnection conn = pool().borrow()) {
+                    String sql = "SELECT id FROM users WHERE email=?";
+                    PreparedStatement preparedStatement = conn.prepare(sql);
+                    preparedStatement.setString(1, p.getEmail());
 
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        resultSet.next();
+                        return resultSet.getInt("id");
+                    }
+                }
+            });
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
         MyLogger.makeLog(String.valueOf(id));
         return id;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,661 @@
+package dao;
+
+import model.Student;
+import service.MyLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.zip.CRC32C;
+
+// Local write-ahead journal for one course. When the server cannot be reached, inserts, edits and
+// deletes are appended to <roster.journal.dir>/<course>.journal and count as saved; they are
+// replayed in order, in batches, once the server answers again. While anything is waiting in the
+// journal, later writes go to the journal too, so the server always sees changes in the order
+// they were made.
+//
+// Each record is [length][CRC32C][type][payload]. Appends from concurrent callers are group
+// committed: the first waiting caller writes everything queued so far and forces it to disk once,
+// and the others only wait for that. A torn record at the end of the file, e.g. after a crash in
+// the middle of a write, fails its checksum and is cut off when the journal is opened.
+public class EditJournal implements AutoCloseable {
+    public static final Path DIRECTORY = Paths.get(System.getProperty("roster.journal.dir",
+            Paths.get(System.getProperty("user.home"), ".roster", "journal").toString()));
+    // Journal entries sent to the server per batch during replay
+    public static final int REPLAY_BATCH = 500;
+
+    private static final byte INSERT = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    // Everything before the offset it carries has been replayed
+    private static final byte CHECKPOINT = 4;
+    private static final int HEADER = 8;
+    private static final Map<String, EditJournal> OPEN = new HashMap<>();
+
+    private final String course;
+    private final Path path;
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final ReentrantLock replayLock = new ReentrantLock();
+    // Guarded by lock. Records appended since the last flush wait in queued and form one batch.
+    private Batch queued = new Batch();
+    private boolean flushing;
+    private long size;
+    private long replayedThrough;
+    private int pending;
+
+    private EditJournal(String course) throws IOException {
+        this.course = course;
+        Files.createDirectories(DIRECTORY);
+        this.path = DIRECTORY.resolve(course + ".journal");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+    }
+
+    // The journal of a course, opened on first use and shared by everything working on the course.
+    public static synchronized EditJournal forCourse(String course) {
+        EditJournal journal = OPEN.get(course);
+        if (journal == null) {
+            try {
+                journal = new EditJournal(course);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open the edit journal of " + course, e);
+            }
+            OPEN.put(course, journal);
+        }
+        return journal;
+    }
+
+    public static synchronized void closeJournal(String course) {
+        EditJournal journal = OPEN.remove(course);
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public static synchronized void closeAll() {
+        OPEN.values().forEach(EditJournal::close);
+        OPEN.clear();
+    }
+
+    // True for errors that mean the server could not be reached or did not answer in time, as
+    // opposed to a statement the server refused.
+    public static boolean isUnreachable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof ConnectException) {
+                return true;
+            }
+            if (cause instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Entries written locally and not yet replayed to the server.
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean hasPending() {
+        return getPendingCount() > 0;
+    }
+
+    // A server write, run with the journal as its fallback.
+    public interface Write<T> {
+        T run() throws SQLException;
+    }
+
+    // Runs write against the server and returns its result. If entries are still waiting in the
+    // journal, or the server turns out to be unreachable, the change is journaled instead and
+    // offlineResult is returned. Errors the server reports for the statement itself are thrown.
+    public <T> T apply(Write<T> write, T offlineResult, Entry... entries) throws SQLException {
+        if (!hasPending()) {
+            try {
+                return write.run();
+            } catch (SQLException | RuntimeException e) {
+                if (!isUnreachable(e)) {
+                    throw e;
+                }
+                MyLogger.log(Level.WARNING, "Server unreachable, journaling {} change(s) for {}: {}",
+                        entries.length, course, e.getMessage());
+            }
+        }
+        try {
+            append(entries);
+        } catch (IOException e) {
+            throw new SQLException("The server is unreachable and the change could not be saved locally: " + e.getMessage(), e);
+        }
+        return offlineResult;
+    }
+
+    // Appends the entries and returns once they are on disk.
+    public void append(Entry... entries) throws IOException {
+        if (entries.length == 0) {
+            return;
+        }
+        byte[][] records = new byte[entries.length][];
+        for (int i = 0; i < entries.length; i++) {
+            records[i] = entries[i].encode();
+        }
+        OperationStats stats = DaoMetrics.operation("journal.append");
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Batch batch = queued;
+            for (byte[] record : records) {
+                batch.bytes.write(record, 0, record.length);
+            }
+            batch.entries += records.length;
+            pending += records.length;
+            awaitDurable(batch);
+        } catch (IOException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        stats.record(System.nanoTime() - start, records.length);
+    }
+
+    // Group commit. Caller holds lock. Whoever finds no flush running writes the whole queued batch
+    // and forces it once for every record in it, then wakes everyone waiting on it.
+    private void awaitDurable(Batch batch) throws IOException {
+        while (!batch.done) {
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+                continue;
+            }
+            // Not flushing and not done, so batch is still the queued one
+            flushing = true;
+            queued = new Batch();
+            ByteBuffer bytes = ByteBuffer.wrap(batch.bytes.toByteArray());
+            long position = size;
+            lock.unlock();
+            try {
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                batch.error = e;
+            } finally {
+                lock.lock();
+                flushing = false;
+            }
+            if (batch.error == null) {
+                size = position;
+            } else {
+                // None of the batch counts; drop whatever part of it made it to the file
+                pending -= batch.entries;
+                try {
+                    channel.truncate(size);
+                } catch (IOException e) {
+                    batch.error.addSuppressed(e);
+                }
+            }
+            batch.done = true;
+            flushed.signalAll();
+        }
+        if (batch.error != null) {
+            throw new IOException("Could not write the edit journal " + path, batch.error);
+        }
+    }
+
+    // Sends everything waiting in the journal to the server, in order. Consecutive entries of the
+    // same kind go out together: inserts as multi-row INSERTs, edits as one batched updateColumns()
+    // and deletes as one deleteRecords(). After each batch a checkpoint is journaled and the next
+    // replay starts after it. Replay is at-least-once: a crash between the server committing a batch
+    // and its checkpoint reaching the disk sends that batch again. Edits and deletes are idempotent;
+    // an insert that finds its own row already stored counts as applied. Stops early if the server
+    // is still unreachable. Once everything is through, the file is emptied.
+    public Replay replay(DbConnectivityClass dao) throws IOException {
+        Replay replay = new Replay();
+        if (!replayLock.tryLock()) {
+            return replay;
+        }
+        OperationStats stats = DaoMetrics.operation("journal.replay");
+        long start = System.nanoTime();
+        try {
+            long from;
+            long to;
+            lock.lock();
+            try {
+                if (pending == 0) {
+                    return replay;
+                }
+                from = replayedThrough;
+                to = size;
+            } finally {
+                lock.unlock();
+            }
+
+            List<Positioned> entries = read(from, to);
+            int next = 0;
+            while (next < entries.size()) {
+                int end = runEnd(entries, next);
+                List<Positioned> run = entries.subList(next, end);
+                try {
+                    send(dao, run, replay);
+                } catch (SQLException | RuntimeException e) {
+                    if (!isUnreachable(e)) {
+                        // Stays in the journal; the next replay tries the batch again
+                        throw new IOException("Journal replay for " + course + " failed: " + e.getMessage(), e);
+                    }
+                    MyLogger.makeLog("Journal replay for {} stopped, server still unreachable: {}", course, e.getMessage());
+                    break;
+                }
+                checkpoint(run.get(run.size() - 1).end, run.size());
+                replay.applied += run.size();
+                next = end;
+            }
+            replay.remaining = getPendingCount();
+            if (replay.remaining == 0) {
+                truncateIfIdle();
+            }
+            MyLogger.makeLog("Journal replay for {}: {}", course, replay);
+            stats.record(System.nanoTime() - start, replay.applied);
+            return replay;
+        } catch (IOException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    // End of the batch starting at from: entries of the same kind, at most REPLAY_BATCH of them.
+    private static int runEnd(List<Positioned> entries, int from) {
+        byte type = entries.get(from).entry.type;
+        int end = from + 1;
+        while (end < entries.size() && end - from < REPLAY_BATCH && entries.get(end).entry.type == type) {
+            end++;
+        }
+        return end;
+    }
+
+    private void send(DbConnectivityClass dao, List<Positioned> run, Replay replay) throws SQLException {
+        switch (run.get(0).entry.type) {
+            case INSERT -> {
+                List<Student> students = new ArrayList<>(run.size());
+                for (Positioned positioned : run) {
+                    students.add(positioned.entry.student);
+                }
+                BulkInsertResult result = dao.insertUsersOrThrow(students, DbConnectivityClass.DEFAULT_BATCH_SIZE);
+                for (BulkInsertResult.RowFailure failure : result.getFailures()) {
+                    Student stored = failure.getStudent() == null ? null : dao.findByEmail(failure.getStudent().getEmail());
+                    if (stored != null && sameStudent(stored, failure.getStudent())) {
+                        // Inserted by an earlier replay that stopped before its checkpoint
+                        failure.getStudent().setId(stored.getId());
+                    } else {
+                        replay.rejected.add(failure.toString());
+                    }
+                }
+            }
+            case UPDATE -> {
+                // Later edits of the same row win, column by column
+                Map<Integer, EnumMap<StudentColumn, String>> changes = new LinkedHashMap<>();
+                for (Positioned positioned : run) {
+                    for (int id : positioned.entry.ids) {
+                        changes.computeIfAbsent(id, k -> new EnumMap<>(StudentColumn.class)).putAll(positioned.entry.values);
+                    }
+                }
+                dao.updateColumns(changes).forEach((id, reason) -> replay.rejected.add("Row " + id + ": " + reason));
+            }
+            case DELETE -> {
+                List<Integer> ids = new ArrayList<>();
+                for (Positioned positioned : run) {
+                    for (int id : positioned.entry.ids) {
+                        ids.add(id);
+                    }
+                }
+                dao.deleteRecords(ids);
+            }
+            default -> throw new IllegalStateException("Unknown journal entry type " + run.get(0).entry.type);
+        }
+    }
+
+    private static boolean sameStudent(Student stored, Student journaled) {
+        return Objects.equals(stored.getFirstName(), journaled.getFirstName())
+                && Objects.equals(stored.getLastName(), journaled.getLastName())
+                && Objects.equals(stored.getMajor(), journaled.getMajor())
+                && Objects.equals(stored.getYear(), journaled.getYear());
+    }
+
+    private void checkpoint(long through, int entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        new DataOutputStream(bytes).writeLong(through);
+        byte[] record = frame(CHECKPOINT, bytes.toByteArray());
+        lock.lock();
+        try {
+            Batch batch = queued;
+            batch.bytes.write(record, 0, record.length);
+            awaitDurable(batch);
+            replayedThrough = through;
+            pending -= entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Starts the file over once it holds nothing but replayed entries.
+    private void truncateIfIdle() throws IOException {
+        lock.lock();
+        try {
+            if (pending == 0 && !flushing && queued.bytes.size() == 0) {
+                channel.truncate(0);
+                channel.force(false);
+                size = 0;
+                replayedThrough = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads the file back at startup: finds the last checkpoint, counts the entries after it and
+    // cuts off a torn tail.
+    private void recover() throws IOException {
+        long length = channel.size();
+        List<Positioned> records = scan(0, length);
+        long valid = records.isEmpty() ? 0 : records.get(records.size() - 1).end;
+        long checkpoint = 0;
+        for (Positioned positioned : records) {
+            if (positioned.entry == null) {
+                checkpoint = positioned.checkpoint;
+            }
+        }
+        // Entries appended during a replay can sit before its checkpoint record but after the
+        // offset it names
+        int entries = 0;
+        for (Positioned positioned : records) {
+            if (positioned.entry != null && positioned.start >= checkpoint) {
+                entries++;
+            }
+        }
+        if (valid < length) {
+            MyLogger.log(Level.WARNING, "Edit journal {}: dropping {} bytes of an incomplete record", path, length - valid);
+            channel.truncate(valid);
+            channel.force(false);
+        }
+        size = valid;
+        replayedThrough = checkpoint;
+        pending = entries;
+        if (pending > 0) {
+            MyLogger.makeLog("Edit journal {} has {} change(s) waiting for the server", path, pending);
+        }
+    }
+
+    private List<Positioned> read(long from, long to) throws IOException {
+        List<Positioned> entries = new ArrayList<>();
+        for (Positioned positioned : scan(from, to)) {
+            if (positioned.entry != null) {
+                entries.add(positioned);
+            }
+        }
+        return entries;
+    }
+
+    // Every intact record in [from, to), stopping at the first one that is short or fails its checksum.
+    private List<Positioned> scan(long from, long to) throws IOException {
+        List<Positioned> records = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        long position = from;
+        while (position + HEADER <= to) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            int checksum = header.getInt(4);
+            if (length <= 0 || position + HEADER + length > to) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            long end = position + HEADER + length;
+            records.add(decode(payload.array(), position, end));
+            position = end;
+        }
+        return records;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException(path.toString());
+            }
+        }
+    }
+
+    private static byte[] frame(byte type, byte[] body) {
+        byte[] payload = new byte[body.length + 1];
+        payload[0] = type;
+        System.arraycopy(body, 0, payload, 1, body.length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        return record.array();
+    }
+
+    private static Positioned decode(byte[] payload, long start, long end) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+        byte type = payload[0];
+        if (type == CHECKPOINT) {
+            return new Positioned(null, in.readLong(), start, end);
+        }
+        Entry entry = new Entry(type);
+        if (type == INSERT) {
+            entry.student = new Student(null, readString(in), readString(in), readString(in), readString(in), readString(in));
+            return new Positioned(entry, 0, start, end);
+        }
+        entry.ids = new int[in.readInt()];
+        for (int i = 0; i < entry.ids.length; i++) {
+            entry.ids[i] = in.readInt();
+        }
+        if (type == UPDATE) {
+            int columns = in.readByte();
+            for (int i = 0; i < columns; i++) {
+                entry.values.put(StudentColumn.values()[in.readByte()], readString(in));
+            }
+        }
+        return new Positioned(entry, 0, start, end);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // One journaled change.
+    public static final class Entry {
+        private final byte type;
+        private Student student;
+        private int[] ids;
+        private final EnumMap<StudentColumn, String> values = new EnumMap<>(StudentColumn.class);
+
+        private Entry(byte type) {
+            this.type = type;
+        }
+
+        // A copy of the student is taken, so later edits of the object do not leak into the journal
+        public static Entry insert(Student student) {
+            Entry entry = new Entry(INSERT);
+            entry.student = new Student(null, student.getFirstName(), student.getLastName(),
+                    student.getMajor(), student.getEmail(), student.getYear());
+            return entry;
+        }
+
+        // Every column of the row, as the edit form writes it
+        public static Entry edit(int id, Student student) {
+            Entry entry = new Entry(UPDATE);
+            entry.ids = new int[]{id};
+            for (StudentColumn column : StudentColumn.values()) {
+                entry.values.put(column, column.get(student));
+            }
+            return entry;
+        }
+
+        public static Entry update(int id, Map<StudentColumn, String> values) {
+            Entry entry = new Entry(UPDATE);
+            entry.ids = new int[]{id};
+            entry.values.putAll(values);
+            return entry;
+        }
+
+        public static Entry update(StudentColumn column, String value, Iterable<Integer> ids) {
+            Entry entry = new Entry(UPDATE);
+            entry.ids = toArray(ids);
+            entry.values.put(column, value);
+            return entry;
+        }
+
+        public static Entry delete(Iterable<Integer> ids) {
+            Entry entry = new Entry(DELETE);
+            entry.ids = toArray(ids);
+            return entry;
+        }
+
+        private static int[] toArray(Iterable<Integer> ids) {
+            int[] array = new int[16];
+            int count = 0;
+            for (Integer id : ids) {
+                if (count == array.length) {
+                    array = Arrays.copyOf(array, count * 2);
+                }
+                array[count++] = id;
+            }
+            return Arrays.copyOf(array, count);
+        }
+
+        private byte[] encode() {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+                DataOutputStream out = new DataOutputStream(bytes);
+                if (type == INSERT) {
+                    writeString(out, student.getFirstName());
+                    writeString(out, student.getLastName());
+                    writeString(out, student.getMajor());
+                    writeString(out, student.getEmail());
+                    writeString(out, student.getYear());
+                } else {
+                    out.writeInt(ids.length);
+                    for (int id : ids) {
+                        out.writeInt(id);
+                    }
+                    if (type == UPDATE) {
+                        out.writeByte(values.size());
+                        for (Map.Entry<StudentColumn, String> value : values.entrySet()) {
+                            out.writeByte(value.getKey().ordinal());
+                            writeString(out, value.getValue());
+                        }
+                    }
+                }
+                return frame(type, bytes.toByteArray());
+            } catch (IOException e) {
+                // Writing to a byte array does not fail
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // What a replay got through.
+    public static final class Replay {
+        private int applied;
+        private int remaining;
+        private final List<String> rejected = new ArrayList<>();
+
+        public int getApplied() {
+            return applied;
+        }
+
+        // Entries still in the journal because the server went away again
+        public int getRemaining() {
+            return remaining;
+        }
+
+        // Replayed changes the server refused, e.g. an insert whose email another student has taken by now
+        public List<String> getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return applied + " replayed, " + rejected.size() + " rejected, " + remaining + " remaining";
+        }
+    }
+
+    // Records appended while no flush was running; they reach the disk together.
+    private static final class Batch {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int entries;
+        boolean done;
+        IOException error;
+    }
+
+    private record Positioned(Entry entry, long checkpoint, long start, long end) {
+    }
+}
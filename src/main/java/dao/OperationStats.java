@@ -0,0 +1,92 @@
+package dao;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency, throughput and error counters for one named DAO operation.
+public class OperationStats implements OperationStatsMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private volatile long since = System.nanoTime();
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos, long rowCount) {
+        latency.record(nanos);
+        totalNanos.add(nanos);
+        rows.add(rowCount);
+    }
+
+    // Failed calls count towards latency too; a slow timeout is exactly what should show up.
+    public void recordError(long nanos) {
+        latency.record(nanos);
+        totalNanos.add(nanos);
+        errors.increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        double seconds = (System.nanoTime() - since) / 1e9;
+        return seconds <= 0 ? 0 : rows.sum() / seconds;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = latency.getCount();
+        return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.percentileMicros(50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.percentileMicros(99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxMicros() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        since = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d err=%d p50=%.1fms p99=%.1fms max=%.1fms rows/s=%.0f",
+                name, getCount(), getErrorCount(), getP50Millis(), getP99Millis(), getMaxMillis(), getRowsPerSecond());
+    }
+}
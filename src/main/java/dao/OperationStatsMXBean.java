@@ -0,0 +1,25 @@
+package dao;
+
+// JMX view of one DAO operation, registered as roster.dao:type=Operation,name=<operation>.
+// Latencies are in milliseconds and cover everything since the last reset.
+public interface OperationStatsMXBean {
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRows();
+
+    double getRowsPerSecond();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
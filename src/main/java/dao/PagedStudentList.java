@@ -0,0 +1,530 @@
+package dao;
+
+import javafx.collections.ObservableListBase;
+import model.Student;
+import service.MyLogger;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+// Roster list for the TableView that only keeps a bounded window of pages in memory.
+// Pages are keyset ranges of ids (start id of page k up to the start id of page k+1) and are
+// fetched asynchronously the first time a row in them is requested; until then the row shows
+// as a placeholder. Least recently used pages are evicted once more than maxPages are resident.
+// syncChanges() applies only the rows changed on the server since the last refresh or sync.
+// Given a RosterSnapshot, the list starts out with the snapshot's layout and serves pages from it
+// without waiting for the server, while a delta sync from the snapshot's watermark runs in the
+// background; once that has been applied, pages come from the server again.
+// Must be used from the JavaFX Application Thread.
+public final class PagedStudentList extends ObservableListBase<Student> {
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int DEFAULT_MAX_PAGES = 16;
+    public static final Student LOADING = new Student(null, "Loading...", "", "", "", "");
+
+    private final AsyncDbConnectivityClass db;
+    private final int pageSize;
+    private final Map<Integer, List<Student>> pages;
+    private final Set<Integer> requested = new HashSet<>();
+
+    private int[] pageStartIds = new int[0];
+    private int[] pageCounts = new int[0];
+    private int[] pageOffsets = new int[0];
+    private boolean offsetsDirty;
+    private int pageCount;
+    private int size;
+    // Bumped by refresh() so pages fetched for an older layout are dropped
+    private int generation;
+    // Highest id in the list; changed rows above it are new and appended
+    private int maxKnownId;
+    private Timestamp watermark;
+    // Local copy pages are read from until the first sync has been applied
+    private RosterSnapshot snapshot;
+    // Pages with rows edited here since the snapshot was taken; those must come from the server
+    private final Set<Integer> snapshotStale = new HashSet<>();
+
+    public PagedStudentList(DbConnectivityClass dao) {
+        this(dao, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public PagedStudentList(DbConnectivityClass dao, RosterSnapshot snapshot) {
+        this(dao, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, snapshot);
+    }
+
+    public PagedStudentList(DbConnectivityClass dao, int pageSize, int maxPages) {
+        this(dao, pageSize, maxPages, null);
+    }
+
+    public PagedStudentList(DbConnectivityClass dao, int pageSize, int maxPages, RosterSnapshot snapshot) {
+        this.db = new AsyncDbConnectivityClass(dao);
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Student>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        if (snapshot != null && snapshot.size() > 0) {
+            showSnapshot(snapshot);
+            syncChanges();
+        } else {
+            refresh();
+        }
+    }
+
+    // Lays the list out from the snapshot: every pageSize-th id starts a page, as on the server.
+    private void showSnapshot(RosterSnapshot snapshot) {
+        int count = (snapshot.size() + pageSize - 1) / pageSize;
+        int[] startIds = new int[count];
+        int[] counts = new int[count];
+        for (int i = 0; i < count; i++) {
+            startIds[i] = snapshot.getId(i * pageSize);
+            counts[i] = Math.min(pageSize, snapshot.size() - i * pageSize);
+        }
+        replaceLayout(startIds, counts, count, snapshot.size());
+        maxKnownId = snapshot.getMaxId();
+        watermark = snapshot.getWatermark();
+        this.snapshot = snapshot;
+    }
+
+    // A page read from the snapshot, or null if the snapshot cannot stand in for it any more.
+    private List<Student> snapshotPage(int page) {
+        if (snapshot == null || snapshotStale.contains(page)) {
+            return null;
+        }
+        int fromId = pageStartIds[page];
+        int toId = page + 1 < pageCount ? pageStartIds[page + 1] : Integer.MAX_VALUE;
+        List<Student> rows = snapshot.range(fromId, toId);
+        // Rows were added or removed here since; let the server's copy resize the page
+        return rows.size() == pageCounts[page] ? rows : null;
+    }
+
+    // Re-reads the row count and page boundaries in the background, then drops every cached page.
+    public CompletableFuture<Void> refresh() {
+        return db.fetchLayout(pageSize)
+                .thenAccept(layout -> {
+                    int[] startIds = layout.getPageStartIds();
+                    int total = layout.getTotal();
+                    int[] counts = new int[startIds.length];
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] = i < counts.length - 1 ? pageSize : total - pageSize * (counts.length - 1);
+                    }
+                    replaceLayout(startIds, counts, startIds.length, total);
+                    maxKnownId = layout.getMaxId();
+                    watermark = layout.getWatermark();
+                })
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        MyLogger.makeLog("Roster refresh failed: " + AsyncDbConnectivityClass.describe(error));
+                    }
+                });
+    }
+
+    // Fetches only what changed on the server since the last refresh or sync and patches it into
+    // the list: updated rows in resident pages are replaced, new rows appended, deleted rows
+    // removed, and pages that are not resident are recounted so the row count stays right.
+    public CompletableFuture<Void> syncChanges() {
+        if (watermark == null) {
+            return refresh();
+        }
+        int requestGeneration = generation;
+        return db.fetchChangesSince(watermark)
+                .thenAccept(delta -> applyDelta(requestGeneration, delta))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        MyLogger.makeLog("Roster sync failed: " + AsyncDbConnectivityClass.describe(error));
+                    }
+                });
+    }
+
+    // Deltas overlap, so every step here must be a no-op for rows that were already applied.
+    private void applyDelta(int requestGeneration, RosterDelta delta) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        watermark = delta.getWatermark();
+        // Caught up with the server; pages that are not resident come from there from now on
+        snapshot = null;
+        snapshotStale.clear();
+        Set<Integer> recount = new TreeSet<>();
+
+        for (Integer id : delta.getDeletedIds()) {
+            if (pageCount == 0 || id > maxKnownId) {
+                continue;
+            }
+            int page = pageOfId(id);
+            List<Student> rows = pages.get(page);
+            if (rows == null) {
+                recount.add(page);
+                continue;
+            }
+            int offset = offsetOfId(rows, id);
+            if (offset >= 0) {
+                ensureOffsets();
+                remove(pageOffsets[page] + offset);
+            }
+        }
+
+        for (Student student : delta.getChanged()) {
+            int id = student.getId();
+            if (id > maxKnownId) {
+                List<Student> last = pageCount == 0 ? null : pages.get(pageCount - 1);
+                if (last == null || offsetOfId(last, id) < 0) {
+                    add(size, student);
+                }
+                maxKnownId = id;
+                continue;
+            }
+            if (pageCount == 0) {
+                continue;
+            }
+            int page = pageOfId(id);
+            List<Student> rows = pages.get(page);
+            if (rows == null) {
+                // Either an update, or a row whose insert committed after a higher id was seen
+                recount.add(page);
+                continue;
+            }
+            int offset = offsetOfId(rows, id);
+            ensureOffsets();
+            if (offset >= 0) {
+                set(pageOffsets[page] + offset, student);
+            } else {
+                insertInPage(page, rows, student);
+            }
+        }
+
+        for (int page : recount) {
+            recountPage(page);
+        }
+        if (!delta.isEmpty()) {
+            MyLogger.makeLog("Roster sync applied " + delta.getChanged().size() + " changed and "
+                    + delta.getDeletedIds().size() + " deleted rows");
+        }
+    }
+
+    // Places a row that was committed out of id order into its sorted position in a resident page.
+    private void insertInPage(int page, List<Student> rows, Student student) {
+        int offset = 0;
+        while (offset < rows.size() && rows.get(offset).getId() != null && rows.get(offset).getId() < student.getId()) {
+            offset++;
+        }
+        rows.add(offset, student);
+        if (page == 0 && student.getId() < pageStartIds[0]) {
+            pageStartIds[0] = student.getId();
+        }
+        ensureOffsets();
+        int index = pageOffsets[page] + offset;
+        pageCounts[page]++;
+        size++;
+        offsetsDirty = true;
+
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    // Brings the placeholder count of a page that is not resident in line with the server.
+    private void recountPage(int page) {
+        int fromId = pageStartIds[page];
+        int toId = page + 1 < pageCount ? pageStartIds[page + 1] : Integer.MAX_VALUE;
+        int requestGeneration = generation;
+        db.countRange(fromId, toId).whenComplete((count, error) -> {
+            if (error != null) {
+                MyLogger.makeLog("Recounting roster page " + page + " failed: " + AsyncDbConnectivityClass.describe(error));
+            } else if (requestGeneration == generation && page < pageCount && !pages.containsKey(page)) {
+                resizePage(page, count);
+            }
+        });
+    }
+
+    private void resizePage(int page, int count) {
+        int old = pageCounts[page];
+        if (count == old) {
+            return;
+        }
+        ensureOffsets();
+        int from = pageOffsets[page];
+        pageCounts[page] = count;
+        size += count - old;
+        offsetsDirty = true;
+
+        beginChange();
+        if (count > old) {
+            nextAdd(from + old, from + count);
+        } else {
+            nextRemove(from + count, Collections.nCopies(old - count, LOADING));
+        }
+        endChange();
+    }
+
+    private void replaceLayout(int[] startIds, int[] counts, int newPageCount, int newSize) {
+        int oldSize = size;
+        generation++;
+        pages.clear();
+        requested.clear();
+        snapshot = null;
+        snapshotStale.clear();
+        pageStartIds = startIds;
+        pageCounts = counts;
+        pageCount = newPageCount;
+        size = newSize;
+        offsetsDirty = true;
+
+        beginChange();
+        if (oldSize > 0) {
+            nextRemove(0, Collections.nCopies(oldSize, LOADING));
+        }
+        if (newSize > 0) {
+            nextAdd(0, newSize);
+        }
+        endChange();
+    }
+
+    @Override
+    public Student get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int page = pageOf(index);
+        int offset = index - pageOffsets[page];
+        List<Student> rows = pages.get(page);
+        if (rows == null) {
+            rows = snapshotPage(page);
+            if (rows == null) {
+                requestPage(page);
+                return LOADING;
+            }
+            pages.put(page, rows);
+        }
+        return offset < rows.size() ? rows.get(offset) : LOADING;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Appends a row that was just inserted; new auto-increment ids always sort last.
+    @Override
+    public void add(int index, Student student) {
+        if (index != size) {
+            throw new UnsupportedOperationException("Rows can only be appended");
+        }
+        if (pageCount == 0 || pageCounts[pageCount - 1] >= pageSize) {
+            if (pageCount == pageStartIds.length) {
+                int capacity = Math.max(4, pageCount * 2);
+                pageStartIds = Arrays.copyOf(pageStartIds, capacity);
+                pageCounts = Arrays.copyOf(pageCounts, capacity);
+            }
+            pageStartIds[pageCount] = student.getId() == null ? Integer.MAX_VALUE : student.getId();
+            pageCounts[pageCount] = 0;
+            pages.put(pageCount, new ArrayList<>());
+            pageCount++;
+        }
+        int last = pageCount - 1;
+        List<Student> rows = pages.get(last);
+        if (rows != null) {
+            rows.add(student);
+        }
+        pageCounts[last]++;
+        size++;
+        offsetsDirty = true;
+        if (student.getId() != null) {
+            maxKnownId = Math.max(maxKnownId, student.getId());
+        }
+
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    @Override
+    public Student set(int index, Student student) {
+        Student old = get(index);
+        int page = pageOf(index);
+        List<Student> rows = pages.get(page);
+        int offset = index - pageOffsets[page];
+        if (rows != null && offset < rows.size()) {
+            rows.set(offset, student);
+        }
+        if (snapshot != null) {
+            snapshotStale.add(page);
+        }
+        // A row appended before its id was known may have opened a page with an unknown start
+        if (offset == 0 && pageStartIds[page] == Integer.MAX_VALUE && student.getId() != null) {
+            pageStartIds[page] = student.getId();
+        }
+        if (student.getId() != null) {
+            maxKnownId = Math.max(maxKnownId, student.getId());
+        }
+        beginChange();
+        nextSet(index, old);
+        endChange();
+        return old;
+    }
+
+    @Override
+    public Student remove(int index) {
+        Student old = get(index);
+        int page = pageOf(index);
+        List<Student> rows = pages.get(page);
+        int offset = index - pageOffsets[page];
+        if (rows != null && offset < rows.size()) {
+            rows.remove(offset);
+        }
+        pageCounts[page]--;
+        size--;
+        offsetsDirty = true;
+
+        beginChange();
+        nextRemove(index, old);
+        endChange();
+        return old;
+    }
+
+    // Removes every resident row in the collection as one list change, e.g. after a bulk delete.
+    // Rows in pages that are not loaded are left for the next sync or page load to reconcile.
+    @Override
+    public boolean removeAll(Collection<?> students) {
+        if (students.isEmpty()) {
+            return false;
+        }
+        Set<Object> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+        targets.addAll(students);
+        ensureOffsets();
+        List<int[]> found = new ArrayList<>();
+        for (Map.Entry<Integer, List<Student>> entry : pages.entrySet()) {
+            List<Student> rows = entry.getValue();
+            for (int offset = 0; offset < rows.size(); offset++) {
+                if (targets.contains(rows.get(offset))) {
+                    found.add(new int[]{entry.getKey(), offset, pageOffsets[entry.getKey()] + offset});
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            return false;
+        }
+        // Back to front, so the indexes still to be removed do not shift
+        found.sort((a, b) -> Integer.compare(b[2], a[2]));
+        beginChange();
+        for (int[] row : found) {
+            Student old = pages.get(row[0]).remove(row[1]);
+            pageCounts[row[0]]--;
+            size--;
+            nextRemove(row[2], old);
+        }
+        offsetsDirty = true;
+        endChange();
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        replaceLayout(new int[0], new int[0], 0, 0);
+    }
+
+    private int pageOf(int index) {
+        ensureOffsets();
+        // Last page whose first row is at or before index; skips pages emptied by deletes
+        int lo = 0;
+        int hi = pageCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (pageOffsets[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    // Page whose id range holds the id: the last page starting at or below it.
+    private int pageOfId(int id) {
+        int lo = 0;
+        int hi = pageCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (pageStartIds[mid] <= id) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private static int offsetOfId(List<Student> rows, int id) {
+        for (int i = 0; i < rows.size(); i++) {
+            Integer rowId = rows.get(i).getId();
+            if (rowId != null && rowId == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureOffsets() {
+        if (offsetsDirty) {
+            if (pageOffsets.length < pageCount) {
+                pageOffsets = new int[pageStartIds.length];
+            }
+            int offset = 0;
+            for (int i = 0; i < pageCount; i++) {
+                pageOffsets[i] = offset;
+                offset += pageCounts[i];
+            }
+            offsetsDirty = false;
+        }
+    }
+
+    private void requestPage(int page) {
+        if (!requested.add(page)) {
+            return;
+        }
+        int fromId = pageStartIds[page];
+        int toId = page + 1 < pageCount ? pageStartIds[page + 1] : Integer.MAX_VALUE;
+        int requestGeneration = generation;
+        db.fetchPage(fromId, toId).whenComplete((rows, error) -> {
+            if (error != null) {
+                MyLogger.makeLog("Loading roster page " + page + " failed: " + AsyncDbConnectivityClass.describe(error));
+                requested.remove(page);
+            } else {
+                installPage(requestGeneration, page, rows);
+            }
+        });
+    }
+
+    private void installPage(int requestGeneration, int page, List<Student> rows) {
+        requested.remove(page);
+        if (requestGeneration != generation) {
+            return;
+        }
+        pages.put(page, rows);
+        if (rows.size() != pageCounts[page]) {
+            // Rows were added or deleted on the server since the page boundaries were read
+            resizePage(page, rows.size());
+        }
+        ensureOffsets();
+        int from = pageOffsets[page];
+        int to = Math.min(from + pageCounts[page], size);
+        if (from >= to) {
+            return;
+        }
+        // Tell the table the placeholders in this range were replaced by real rows
+        beginChange();
+        nextReplace(from, to, Collections.nCopies(to - from, LOADING));
+        endChange();
+    }
+}
@@ -0,0 +1,351 @@
+package dao;
+
+import model.Student;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+// Read-through cache in front of DbConnectivityClass. Point lookups, the table's pages and search
+// results are indexed by id, email and last name, so lookups for rows we already hold never reach
+// the server, and inserts, edits and deletes are written through to both the database and the
+// indexes. Deltas only refresh rows already held. fetchAllStudents() is not cached at all: it
+// returns a CompactRoster, whose row views address rows by position and must not be kept, and
+// indexing it would cost more than plain Students. Exports should read through uncached() so they
+// do not push the table's rows out.
+// Email and last name keys are case-insensitive like the server's default collation.
+public class RosterCache extends DbConnectivityClass {
+    // The table's page window (16 pages of 200 rows) with room for lookups and search results
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final Map<Integer, Student> byId;
+    private final Map<String, Student> byEmail = new HashMap<>();
+    private final Map<String, Set<Student>> byLastName = new HashMap<>();
+    // Keys each row is currently indexed under; Students are edited in place so these can go stale
+    private final Map<Integer, String[]> indexedKeys = new HashMap<>();
+    // Last names whose complete set of rows is known, so a miss there is a real miss
+    private final Set<String> completeLastNames = new HashSet<>();
+    // Rows with edits the server has not seen yet, e.g. in a WriteBehindBuffer
+    private volatile IntPredicate pendingEdits = id -> false;
+
+    public RosterCache(String course) {
+        this(course, DEFAULT_CAPACITY);
+    }
+
+    public RosterCache(String course, int capacity) {
+        super(course);
+        // Access-ordered: the least recently looked up row is dropped first
+        this.byId = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Student> eldest) {
+                if (size() > capacity) {
+                    forget(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public synchronized void clear() {
+        byId.clear();
+        byEmail.clear();
+        byLastName.clear();
+        indexedKeys.clear();
+        completeLastNames.clear();
+    }
+
+    // A reload of a row for which this says true keeps the cached, locally edited values.
+    public void setPendingEdits(IntPredicate pendingEdits) {
+        this.pendingEdits = pendingEdits;
+    }
+
+    // A plain DAO for the same course and connection pool, for bulk reads that should not go
+    // through the cache, e.g. exports.
+    public DbConnectivityClass uncached() {
+        return new DbConnectivityClass(getCourse());
+    }
+
+    // Cache-only lookups, never touching the server. Return null on a miss.
+    public synchronized Student getCachedById(int id) {
+        return byId.get(id);
+    }
+
+    public synchronized Student getCachedByEmail(String email) {
+        return email == null ? null : byEmail.get(key(email));
+    }
+
+    @Override
+    public Student findById(int id) throws SQLException {
+        Student cached = getCachedById(id);
+        if (cached != null) {
+            return cached;
+        }
+        Student loaded = super.findById(id);
+        return loaded == null ? null : put(loaded);
+    }
+
+    @Override
+    public Student findByEmail(String email) throws SQLException {
+        Student cached = getCachedByEmail(email);
+        if (cached != null) {
+            return cached;
+        }
+        Student loaded = super.findByEmail(email);
+        return loaded == null ? null : put(loaded);
+    }
+
+    @Override
+    public List<Student> findByLastName(String lastName) throws SQLException {
+        String key = key(lastName);
+        synchronized (this) {
+            if (completeLastNames.contains(key)) {
+                return new ArrayList<>(byLastName.getOrDefault(key, Set.of()));
+            }
+        }
+        List<Student> loaded = putAll(super.findByLastName(lastName));
+        synchronized (this) {
+            completeLastNames.add(key);
+        }
+        return loaded;
+    }
+
+    @Override
+    public int retrieveId(Student p) {
+        Student cached = getCachedByEmail(p.getEmail());
+        if (cached != null && cached.getId() != null) {
+            return cached.getId();
+        }
+        return super.retrieveId(p);
+    }
+
+    @Override
+    public List<Student> fetchPage(int fromId, int toId) throws SQLException {
+        return putAll(super.fetchPage(fromId, toId));
+    }
+
+    @Override
+    public RosterDelta fetchChangesSince(Timestamp since) throws SQLException {
+        RosterDelta delta = super.fetchChangesSince(since);
+        List<Student> changed = refreshAll(delta.getChanged());
+        synchronized (this) {
+            for (Integer id : delta.getDeletedIds()) {
+                unindex(id, byId.remove(id));
+            }
+        }
+        return new RosterDelta(changed, delta.getDeletedIds(), delta.getMaxId(), delta.getWatermark());
+    }
+
+    @Override
+    public List<Student> searchStudents(String term, int limit) throws SQLException {
+        return putAll(super.searchStudents(term, limit));
+    }
+
+    // Both insert paths of the DAO end up here
+    @Override
+    int insertUserOrThrow(Student student) throws SQLException {
+        int id = super.insertUserOrThrow(student);
+        if (id >= 0) {
+            put(student);
+        }
+        return id;
+    }
+
+    @Override
+    void insertUsers(List<Student> students, int batchSize, BulkInsertResult result) throws SQLException {
+        try {
+            super.insertUsers(students, batchSize, result);
+        } finally {
+            synchronized (this) {
+                for (Student student : students) {
+                    if (student.getId() != null) {
+                        index(student);
+                    }
+                }
+            }
+        }
+    }
+
+    // Merged rows may have overwritten cached students, and inserted ones come back without ids, so
+    // drop what the cache holds for them instead of indexing them.
+    @Override
+    void mergeUsers(List<Student> students, int batchSize, BulkInsertResult result) throws SQLException {
+        try {
+            super.mergeUsers(students, batchSize, result);
+        } finally {
+            synchronized (this) {
+                for (Student student : students) {
+                    Student cached = byEmail.get(key(student.getEmail()));
+                    if (cached != null && cached.getId() != null) {
+                        forget(cached.getId(), cached);
+                        byId.remove(cached.getId());
+                    }
+                    completeLastNames.remove(key(student.getLastName()));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void editUser(int id, Student p) {
+        super.editUser(id, p);
+        synchronized (this) {
+            unindex(id, byId.remove(id));
+            if (p.getId() != null && p.getId() == id) {
+                index(p);
+            }
+        }
+    }
+
+    @Override
+    public Map<Integer, String> updateColumns(Map<Integer, ? extends Map<StudentColumn, String>> changes) throws SQLException {
+        Map<Integer, String> rejected = super.updateColumns(changes);
+        synchronized (this) {
+            for (Integer id : changes.keySet()) {
+                Student cached = byId.get(id);
+                if (cached == null) {
+                    continue;
+                }
+                if (rejected.containsKey(id)) {
+                    // The in-memory row no longer matches the server
+                    forget(id, cached);
+                    byId.remove(id);
+                } else {
+                    index(cached);
+                }
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public void deleteRecord(Student student) {
+        super.deleteRecord(student);
+        if (student != null && student.getId() != null) {
+            synchronized (this) {
+                unindex(student.getId(), byId.remove(student.getId()));
+            }
+        }
+    }
+
+    @Override
+    public int deleteRecords(Collection<Integer> ids) throws SQLException {
+        int deleted = super.deleteRecords(ids);
+        synchronized (this) {
+            for (Integer id : ids) {
+                unindex(id, byId.remove(id));
+            }
+        }
+        return deleted;
+    }
+
+    // Cached instances are the ones the table shows, so they get the new value too
+    @Override
+    public int updateColumn(StudentColumn column, String value, Collection<Integer> ids) throws SQLException {
+        int updated = super.updateColumn(column, value, ids);
+        synchronized (this) {
+            for (Integer id : ids) {
+                Student cached = byId.get(id);
+                if (cached != null) {
+                    column.set(cached, value);
+                    index(cached);
+                }
+            }
+        }
+        return updated;
+    }
+
+    // Adds a row loaded from the server. If the row is already cached, the cached instance is
+    // refreshed in place and returned so the table and the cache keep sharing one object, unless it
+    // has edits still waiting to be written: those values are newer than the server's.
+    private synchronized Student put(Student loaded) {
+        Student cached = byId.get(loaded.getId());
+        if (cached != null && cached != loaded) {
+            if (!pendingEdits.test(loaded.getId())) {
+                for (StudentColumn column : StudentColumn.values()) {
+                    column.set(cached, column.get(loaded));
+                }
+            }
+            index(cached);
+            return cached;
+        }
+        index(loaded);
+        return loaded;
+    }
+
+    private List<Student> putAll(Collection<Student> loaded) {
+        List<Student> result = new ArrayList<>(loaded.size());
+        synchronized (this) {
+            for (Student student : loaded) {
+                result.add(put(student));
+            }
+        }
+        return result;
+    }
+
+    // Refreshes the rows that are cached and passes the others through without caching them.
+    private List<Student> refreshAll(Collection<Student> loaded) {
+        List<Student> result = new ArrayList<>(loaded.size());
+        synchronized (this) {
+            for (Student student : loaded) {
+                result.add(byId.containsKey(student.getId()) ? put(student) : student);
+            }
+        }
+        return result;
+    }
+
+    // (Re)indexes a row under its current email and last name. Caller holds the lock.
+    private void index(Student student) {
+        int id = student.getId();
+        unindex(id, byId.get(id));
+        byId.put(id, student);
+        String email = key(student.getEmail());
+        String lastName = key(student.getLastName());
+        byEmail.put(email, student);
+        byLastName.computeIfAbsent(lastName, k -> new HashSet<>()).add(student);
+        indexedKeys.put(id, new String[]{email, lastName});
+    }
+
+    // Removes a row from the email and last name indexes. Caller holds the lock.
+    private void unindex(int id, Student student) {
+        String[] keys = indexedKeys.remove(id);
+        if (keys == null) {
+            return;
+        }
+        byEmail.remove(keys[0], student);
+        Set<Student> sameName = byLastName.get(keys[1]);
+        if (sameName != null) {
+            sameName.remove(student);
+            if (sameName.isEmpty()) {
+                byLastName.remove(keys[1]);
+            }
+        }
+    }
+
+    // Drops a row that still exists on the server, so its last name can no longer be answered
+    // from the cache alone. Caller holds the lock.
+    private void forget(int id, Student student) {
+        String[] keys = indexedKeys.get(id);
+        if (keys != null) {
+            completeLastNames.remove(keys[1]);
+        }
+        unindex(id, student);
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
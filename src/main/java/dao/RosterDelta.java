@@ -0,0 +1,42 @@
+package dao;
+
+import model.Student;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// Rows inserted or updated and ids deleted since a watermark, plus the next watermark to use.
+// Deltas overlap slightly with the previous one, so applying them must be idempotent.
+public class RosterDelta {
+    private final List<Student> changed;
+    private final List<Integer> deletedIds;
+    private final int maxId;
+    private final Timestamp watermark;
+
+    public RosterDelta(List<Student> changed, List<Integer> deletedIds, int maxId, Timestamp watermark) {
+        this.changed = changed;
+        this.deletedIds = deletedIds;
+        this.maxId = maxId;
+        this.watermark = watermark;
+    }
+
+    public List<Student> getChanged() {
+        return changed;
+    }
+
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    public boolean isEmpty() {
+        return changed.isEmpty() && deletedIds.isEmpty();
+    }
+}
@@ -0,0 +1,35 @@
+package dao;
+
+import java.sql.Timestamp;
+
+// Shape of the users table at one instant: row count, first id of every page, highest id and the
+// server time the snapshot was taken, which is the starting watermark for delta syncs.
+public class RosterLayout {
+    private final int total;
+    private final int[] pageStartIds;
+    private final int maxId;
+    private final Timestamp watermark;
+
+    public RosterLayout(int total, int[] pageStartIds, int maxId, Timestamp watermark) {
+        this.total = total;
+        this.pageStartIds = pageStartIds;
+        this.maxId = maxId;
+        this.watermark = watermark;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int[] getPageStartIds() {
+        return pageStartIds;
+    }
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+}
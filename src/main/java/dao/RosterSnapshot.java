@@ -0,0 +1,391 @@
+package dao;
+
+import model.CompactRoster;
+import model.StringDictionary;
+import model.Student;
+import service.MyLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+// A course's roster as it was at the watermark, kept on local disk so the table can show rows the
+// moment a course is opened and catch up with the server afterwards through a delta sync.
+//
+// The file is column-oriented like CompactRoster: a header, the distinct majors and years, then the
+// ids, major and year codes, the offset and length of each text field and the UTF-8 text itself.
+// load() only maps the file and reads the header and the two small dictionaries; rows are decoded
+// straight from the mapping when a page asks for them. Rows are stored in id order. A snapshot is
+// written to a temporary file and moved into place, so readers never see half of one.
+//
+// Each update is a new generation, <course>.<generation>.roster, rather than a replacement of the
+// old file: a file that is still mapped, by an open tab or by the update reading it, can be neither
+// replaced nor deleted on Windows, and a mapping is only released when it is garbage collected.
+// load() takes the newest generation; older ones are deleted once they are no longer mapped.
+public class RosterSnapshot {
+    public static final Path DIRECTORY = Paths.get(System.getProperty("roster.snapshot.dir",
+            Paths.get(System.getProperty("user.home"), ".roster", "snapshots").toString()));
+
+    private static final int MAGIC = 0x524F5354; // "ROST"
+    private static final int VERSION = 1;
+    private static final int FIELDS = 3;
+    private static final char NULL = Character.MAX_VALUE;
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int maxId;
+    private final Timestamp watermark;
+    private final String[] majors;
+    private final String[] years;
+    // Where each column starts in buffer
+    private final int idsAt;
+    private final int majorsAt;
+    private final int yearsAt;
+    private final int textStartAt;
+    private final int textLengthAt;
+    private final int textAt;
+
+    private RosterSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a roster snapshot");
+        }
+        size = buffer.getInt(8);
+        maxId = buffer.getInt(12);
+        watermark = new Timestamp(buffer.getLong(16));
+        watermark.setNanos(buffer.getInt(24));
+        int textSize = buffer.getInt(28);
+        int position = 32;
+        majors = readDictionary(buffer, position, StringDictionary.MAJORS);
+        position = skipDictionary(buffer, position);
+        years = readDictionary(buffer, position, StringDictionary.YEARS);
+        position = skipDictionary(buffer, position);
+        idsAt = position;
+        majorsAt = idsAt + 4 * size;
+        yearsAt = majorsAt + 2 * size;
+        textStartAt = yearsAt + 2 * size;
+        textLengthAt = textStartAt + 4 * size * FIELDS;
+        textAt = textLengthAt + 2 * size * FIELDS;
+        if ((long) textAt + textSize != buffer.capacity()) {
+            throw new IllegalArgumentException("Truncated roster snapshot");
+        }
+    }
+
+    // The course's snapshot files, newest generation first.
+    static List<Path> generations(String course) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(DIRECTORY)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(DIRECTORY, course + ".*.roster")) {
+            for (Path path : stream) {
+                if (generationOf(course, path) >= 0) {
+                    files.add(path);
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong((Path path) -> generationOf(course, path)).reversed());
+        return files;
+    }
+
+    // The generation in a snapshot file name, or -1 if the name is not one of the course's snapshots.
+    private static long generationOf(String course, Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(course + ".") || !name.endsWith(".roster")) {
+            return -1;
+        }
+        String number = name.substring(course.length() + 1, Math.max(course.length() + 1, name.length() - ".roster".length()));
+        if (number.isEmpty() || number.length() > 18 || !number.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Long.parseLong(number);
+    }
+
+    // The course's newest snapshot, mapped read-only, or null if there is none or it cannot be read.
+    public static RosterSnapshot load(String course) {
+        List<Path> files;
+        try {
+            files = generations(course);
+        } catch (IOException e) {
+            MyLogger.log(Level.WARNING, "Cannot list roster snapshots of {}: {}", course, e);
+            return null;
+        }
+        return files.isEmpty() ? null : load(course, files.get(0));
+    }
+
+    private static RosterSnapshot load(String course, Path path) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            RosterSnapshot snapshot = new RosterSnapshot(mapped);
+            MyLogger.makeLog("Roster snapshot of {} mapped: {} rows as of {} in {} ms", course, snapshot.size,
+                    snapshot.watermark, (System.nanoTime() - start) / 1_000_000);
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            MyLogger.log(Level.WARNING, "Ignoring unreadable roster snapshot {}: {}", path, e);
+            return null;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    // Server time the snapshot is current to; a delta sync from here brings it up to date.
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    public int getId(int index) {
+        return buffer.getInt(idsAt + 4 * index);
+    }
+
+    public Student get(int index) {
+        return new Student(getId(index), text(index, 0), text(index, 1),
+                majors[buffer.getShort(majorsAt + 2 * index)], text(index, 2),
+                years[buffer.getShort(yearsAt + 2 * index)]);
+    }
+
+    // Rows with fromId <= id < toId, in id order.
+    public List<Student> range(int fromId, int toId) {
+        int from = firstAtOrAbove(fromId);
+        int to = firstAtOrAbove(toId);
+        List<Student> rows = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            rows.add(get(i));
+        }
+        return rows;
+    }
+
+    private int firstAtOrAbove(int id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getId(mid) < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // A writable copy of every row.
+    public CompactRoster toRoster() {
+        CompactRoster roster = new CompactRoster(size);
+        for (int i = 0; i < size; i++) {
+            roster.add(getId(i), text(i, 0), text(i, 1), majors[buffer.getShort(majorsAt + 2 * i)],
+                    text(i, 2), years[buffer.getShort(yearsAt + 2 * i)]);
+        }
+        return roster;
+    }
+
+    private String text(int index, int field) {
+        int slot = index * FIELDS + field;
+        char length = buffer.getChar(textLengthAt + 2 * slot);
+        if (length == NULL) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(textAt + buffer.getInt(textStartAt + 4 * slot), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Brings the course's snapshot up to date with the server and writes it back: from the old
+    // snapshot plus the rows changed since its watermark if there is one, otherwise from a full
+    // read. Meant for a background thread.
+    public static void update(DbConnectivityClass dao) throws Exception {
+        String course = dao.getCourse();
+        long start = System.nanoTime();
+        RosterSnapshot previous = load(course);
+        CompactRoster roster;
+        Timestamp watermark;
+        int maxId;
+        if (previous == null) {
+            // Taken before the read, so anything that changes during it comes again with the next delta
+            watermark = dao.fetchServerTime();
+            CompactRoster all = new CompactRoster();
+            dao.streamUsers(STREAM_FETCH_SIZE, row -> all.add(Integer.parseInt(row[0]), row[1], row[2], row[3], row[4], row[5]));
+            roster = all;
+            maxId = roster.isEmpty() ? 0 : roster.getId(roster.size() - 1);
+        } else {
+            RosterDelta delta = dao.fetchChangesSince(previous.getWatermark());
+            roster = previous.toRoster();
+            apply(roster, delta);
+            watermark = delta.getWatermark();
+            maxId = Math.max(previous.getMaxId(), delta.getMaxId());
+        }
+        write(course, roster, maxId, watermark);
+        MyLogger.makeLog("Roster snapshot of {} written: {} rows in {} ms", course, roster.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Deltas overlap, so rows already in the roster are overwritten rather than added twice.
+    private static void apply(CompactRoster roster, RosterDelta delta) {
+        roster.removeIds(new HashSet<>(delta.getDeletedIds()));
+        for (Student student : delta.getChanged()) {
+            int index = roster.indexOfId(student.getId());
+            if (index >= 0) {
+                roster.set(index, student);
+            } else {
+                roster.add(student);
+            }
+        }
+    }
+
+    static void write(String course, CompactRoster roster, int maxId, Timestamp watermark) throws IOException {
+        // Id order, also for rows that came in out of order
+        Integer[] order = new Integer[roster.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(roster.getId(a), roster.getId(b)));
+
+        Map<String, Integer> majorCodes = new HashMap<>();
+        Map<String, Integer> yearCodes = new HashMap<>();
+        List<String> majors = new ArrayList<>();
+        List<String> years = new ArrayList<>();
+        short[] majorColumn = new short[order.length];
+        short[] yearColumn = new short[order.length];
+        byte[][] text = new byte[order.length * FIELDS][];
+        int textSize = 0;
+        for (int row = 0; row < order.length; row++) {
+            int index = order[row];
+            majorColumn[row] = code(majorCodes, majors, roster.getMajor(index));
+            yearColumn[row] = code(yearCodes, years, roster.getYear(index));
+            String[] fields = {roster.getFirstName(index), roster.getLastName(index), roster.getEmail(index)};
+            for (int field = 0; field < FIELDS; field++) {
+                byte[] bytes = fields[field] == null ? null : fields[field].getBytes(StandardCharsets.UTF_8);
+                text[row * FIELDS + field] = bytes;
+                textSize += bytes == null ? 0 : bytes.length;
+            }
+        }
+
+        Files.createDirectories(DIRECTORY);
+        List<Path> older = generations(course);
+        long generation = older.isEmpty() ? 1 : generationOf(course, older.get(0)) + 1;
+        Path target = DIRECTORY.resolve(course + "." + generation + ".roster");
+        Path temporary = Files.createTempFile(DIRECTORY, course, ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(order.length);
+            out.writeInt(maxId);
+            out.writeLong(watermark.getTime());
+            out.writeInt(watermark.getNanos());
+            out.writeInt(textSize);
+            writeDictionary(out, majors);
+            writeDictionary(out, years);
+            for (int index : order) {
+                out.writeInt(roster.getId(index));
+            }
+            for (short code : majorColumn) {
+                out.writeShort(code);
+            }
+            for (short code : yearColumn) {
+                out.writeShort(code);
+            }
+            int position = 0;
+            for (byte[] bytes : text) {
+                out.writeInt(position);
+                position += bytes == null ? 0 : bytes.length;
+            }
+            for (byte[] bytes : text) {
+                out.writeChar(bytes == null ? NULL : bytes.length);
+            }
+            for (byte[] bytes : text) {
+                if (bytes != null) {
+                    out.write(bytes);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        for (Path path : older) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Still mapped somewhere (Windows); a later update deletes it
+            }
+        }
+    }
+
+    // Codes are local to the file; 0 stands for null as in StringDictionary.
+    private static short code(Map<String, Integer> codes, List<String> values, String value) {
+        if (value == null) {
+            return 0;
+        }
+        return (short) (int) codes.computeIfAbsent(value, v -> {
+            values.add(v);
+            return values.size();
+        });
+    }
+
+    private static void writeDictionary(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    // Values come back interned, so rows from the snapshot share them with rows from the server.
+    private static String[] readDictionary(ByteBuffer buffer, int position, StringDictionary dictionary) {
+        int count = buffer.getInt(position);
+        String[] values = new String[count + 1];
+        position += 4;
+        for (int i = 1; i <= count; i++) {
+            int length = buffer.getShort(position) & 0xFFFF;
+            byte[] bytes = new byte[length];
+            buffer.get(position + 2, bytes);
+            values[i] = dictionary.intern(new String(bytes, StandardCharsets.UTF_8));
+            position += 2 + length;
+        }
+        return values;
+    }
+
+    private static int skipDictionary(ByteBuffer buffer, int position) {
+        int count = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < count; i++) {
+            position += 2 + (buffer.getShort(position) & 0xFFFF);
+        }
+        return position;
+    }
+}
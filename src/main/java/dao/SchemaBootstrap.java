@@ -0,0 +1,128 @@
+package dao;
+
+import service.MyLogger;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Creates and migrates each course database once per process. The applied version is kept in
+// the schema_meta table, so after the first call for a database the hot path is a set lookup.
+public class SchemaBootstrap {
+
+    // Append new migrations at the end with the next version number; never edit applied ones.
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1,
+                    "CREATE TABLE IF NOT EXISTS users (" +
+                            "id INT(10) NOT NULL PRIMARY KEY AUTO_INCREMENT," +
+                            "first_name VARCHAR(200) NOT NULL," +
+                            "last_name VARCHAR(200) NOT NULL," +
+                            "major VARCHAR(200)," +
+                            "email VARCHAR(200) NOT NULL UNIQUE," +
+                            "year VARCHAR(200))"),
+            // Secondary indexes for prefix search; email is already indexed by its UNIQUE constraint
+            new Migration(2,
+                    "CREATE INDEX IF NOT EXISTS idx_users_last_name ON users (last_name)",
+                    "CREATE INDEX IF NOT EXISTS idx_users_first_name ON users (first_name)",
+                    "CREATE INDEX IF NOT EXISTS idx_users_major ON users (major)"),
+            // Row versioning for delta sync: a modification time on every row and tombstones for deletes
+            new Migration(3,
+                    "ALTER TABLE users ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6) NOT NULL " +
+                            "DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)",
+                    "CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at)",
+                    "CREATE TABLE IF NOT EXISTS users_deleted (" +
+                            "id INT(10) NOT NULL PRIMARY KEY," +
+                            "deleted_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)," +
+                            "INDEX idx_users_deleted_at (deleted_at))",
+                    "CREATE TRIGGER IF NOT EXISTS users_after_delete AFTER DELETE ON users FOR EACH ROW " +
+                            "INSERT INTO users_deleted (id, deleted_at) VALUES (OLD.id, CURRENT_TIMESTAMP(6)) " +
+                            "ON DUPLICATE KEY UPDATE deleted_at = CURRENT_TIMESTAMP(6)")
+    );
+
+    private static final Set<String> READY = ConcurrentHashMap.newKeySet();
+    private static final Map<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    public static boolean isReady(String dbName) {
+        return READY.contains(dbName);
+    }
+
+    // Forces the next ensure() for this database to check the server again.
+    public static void forget(String dbName) {
+        READY.remove(dbName);
+    }
+
+    public static void ensure(String dbName, ConnectionPool serverPool, ConnectionPool dbPool) throws SQLException {
+        if (READY.contains(dbName)) {
+            return;
+        }
+        ReentrantLock lock = LOCKS.computeIfAbsent(dbName, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            if (READY.contains(dbName)) {
+                return;
+            }
+            try (PooledConnection conn = serverPool.borrow();
+                 Statement statement = conn.getConnection().createStatement()) {
+                statement.executeUpdate("CREATE DATABASE IF NOT EXISTS `" + dbName + "`");
+            }
+            try (PooledConnection conn = dbPool.borrow()) {
+                migrate(dbName, conn);
+            }
+            READY.add(dbName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void migrate(String dbName, PooledConnection conn) throws SQLException {
+        try (Statement statement = conn.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS schema_meta (" +
+                    "id TINYINT NOT NULL PRIMARY KEY," +
+                    "version INT NOT NULL)");
+        }
+
+        int current = 0;
+        PreparedStatement select = conn.prepare("SELECT version FROM schema_meta WHERE id = 1");
+        try (ResultSet resultSet = select.executeQuery()) {
+            if (resultSet.next()) {
+                current = resultSet.getInt(1);
+            }
+        }
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            try (Statement statement = conn.getConnection().createStatement()) {
+                for (String sql : migration.statements) {
+                    statement.executeUpdate(sql);
+                }
+            }
+            PreparedStatement record = conn.prepare("INSERT INTO schema_meta (id, version) VALUES (1, ?) " +
+                    "ON DUPLICATE KEY UPDATE version = VALUES(version)");
+            record.setInt(1, migration.version);
+            record.executeUpdate();
+            MyLogger.makeLog("Schema of " + dbName + " migrated to version " + migration.version);
+        }
+    }
+
+    private static final class Migration {
+        final int version;
+        final String[] statements;
+
+        Migration(int version, String... statements) {
+            this.version = version;
+            this.statements = statements;
+        }
+    }
+}
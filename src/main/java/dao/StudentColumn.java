@@ -0,0 +1,37 @@
+package dao;
+
+import model.Student;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Editable columns of the users table, with the Student accessors that back them.
+public enum StudentColumn {
+    FIRST_NAME("first_name", Student::getFirstName, Student::setFirstName),
+    LAST_NAME("last_name", Student::getLastName, Student::setLastName),
+    MAJOR("major", Student::getMajor, Student::setMajor),
+    EMAIL("email", Student::getEmail, Student::setEmail),
+    YEAR("year", Student::getYear, Student::setYear);
+
+    private final String columnName;
+    private final Function<Student, String> getter;
+    private final BiConsumer<Student, String> setter;
+
+    StudentColumn(String columnName, Function<Student, String> getter, BiConsumer<Student, String> setter) {
+        this.columnName = columnName;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public String get(Student student) {
+        return getter.apply(student);
+    }
+
+    public void set(Student student, String value) {
+        setter.accept(student, value);
+    }
+}
@@ -0,0 +1,202 @@
+package dao;
+
+import model.Student;
+import service.MyLogger;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Buffers inline cell edits and writes them behind the UI. Only the columns that changed are
+// tracked per row, repeated edits of the same cell collapse to the latest value, and the buffer is
+// flushed as batched column-level UPDATEs on a timer or once enough rows are dirty.
+public final class WriteBehindBuffer implements AutoCloseable {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 500;
+    public static final int DEFAULT_MAX_DIRTY_ROWS = 50;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "roster-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<WriteBehindBuffer> OPEN = ConcurrentHashMap.newKeySet();
+
+    public interface Listener {
+        // Called on the flushing thread once these rows are safely in the database, or in the edit
+        // journal while the server is unreachable.
+        void flushed(List<Student> students);
+
+        // Called on the flushing thread for an edit the server refused; the edit is dropped.
+        void rejected(Student student, String reason);
+    }
+
+    private final DbConnectivityClass dao;
+    private final int maxDirtyRows;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledFuture<?> timer;
+    private final Map<Integer, PendingEdit> dirty = new LinkedHashMap<>();
+    private Listener listener;
+    private EditJournal journal;
+
+    public WriteBehindBuffer(DbConnectivityClass dao) {
+        this(dao, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_DIRTY_ROWS);
+    }
+
+    public WriteBehindBuffer(DbConnectivityClass dao, long flushIntervalMillis, int maxDirtyRows) {
+        this.dao = dao;
+        this.maxDirtyRows = maxDirtyRows;
+        this.timer = SCHEDULER.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        OPEN.add(this);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // With a journal, a flush the server cannot take is journaled instead of kept in memory.
+    public void setJournal(EditJournal journal) {
+        this.journal = journal;
+    }
+
+    // Flushes every buffer that is still open, e.g. on application shutdown.
+    public static void closeAll() {
+        for (WriteBehindBuffer buffer : OPEN) {
+            buffer.close();
+        }
+    }
+
+    // Marks one column of the student as dirty with its current value.
+    public void record(Student student, StudentColumn column) {
+        boolean full;
+        synchronized (dirty) {
+            PendingEdit edit = dirty.computeIfAbsent(student.getId(), id -> new PendingEdit(student));
+            edit.student = student;
+            edit.values.put(column, column.get(student));
+            full = dirty.size() >= maxDirtyRows;
+        }
+        if (full) {
+            SCHEDULER.execute(this::flushQuietly);
+        }
+    }
+
+    // Drops buffered edits for a row that is about to be rewritten or deleted as a whole.
+    public void discard(int id) {
+        synchronized (dirty) {
+            dirty.remove(id);
+        }
+    }
+
+    public boolean isDirty(int id) {
+        synchronized (dirty) {
+            return dirty.containsKey(id);
+        }
+    }
+
+    public int getDirtyRowCount() {
+        synchronized (dirty) {
+            return dirty.size();
+        }
+    }
+
+    // Writes everything buffered so far before returning.
+    public void flush() throws SQLException {
+        flushLock.lock();
+        try {
+            Map<Integer, PendingEdit> batch;
+            synchronized (dirty) {
+                if (dirty.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(dirty);
+                dirty.clear();
+            }
+
+            Map<Integer, EnumMap<StudentColumn, String>> changes = new LinkedHashMap<>();
+            batch.forEach((id, edit) -> changes.put(id, edit.values));
+            Map<Integer, String> rejected;
+            try {
+                rejected = journal == null
+                        ? dao.updateColumns(changes)
+                        : journal.apply(() -> dao.updateColumns(changes), Map.of(), journalEntries(changes));
+            } catch (SQLException e) {
+                requeue(batch);
+                throw e;
+            }
+
+            List<Student> written = new ArrayList<>(batch.size());
+            for (Map.Entry<Integer, PendingEdit> entry : batch.entrySet()) {
+                String reason = rejected.get(entry.getKey());
+                if (reason == null) {
+                    written.add(entry.getValue().student);
+                } else if (listener != null) {
+                    listener.rejected(entry.getValue().student, reason);
+                }
+            }
+            MyLogger.makeLog("Write-behind flushed " + written.size() + " rows, " + rejected.size() + " rejected");
+            if (listener != null && !written.isEmpty()) {
+                listener.flushed(written);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.cancel(false);
+        OPEN.remove(this);
+        try {
+            flush();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            // Kept in the buffer; the next tick retries
+            MyLogger.makeLog("Write-behind flush failed: " + e.getMessage());
+        }
+    }
+
+    private static EditJournal.Entry[] journalEntries(Map<Integer, EnumMap<StudentColumn, String>> changes) {
+        List<EditJournal.Entry> entries = new ArrayList<>(changes.size());
+        changes.forEach((id, values) -> entries.add(EditJournal.Entry.update(id, values)));
+        return entries.toArray(new EditJournal.Entry[0]);
+    }
+
+    // Puts a failed batch back without overwriting values edited again in the meantime.
+    private void requeue(Map<Integer, PendingEdit> batch) {
+        synchronized (dirty) {
+            for (Map.Entry<Integer, PendingEdit> entry : batch.entrySet()) {
+                PendingEdit newer = dirty.get(entry.getKey());
+                if (newer == null) {
+                    dirty.put(entry.getKey(), entry.getValue());
+                } else {
+                    entry.getValue().values.forEach(newer.values::putIfAbsent);
+                }
+            }
+        }
+    }
+
+    private static final class PendingEdit {
+        Student student;
+        final EnumMap<StudentColumn, String> values = new EnumMap<>(StudentColumn.class);
+
+        PendingEdit(Student student) {
+            this.student = student;
+        }
+    }
+}
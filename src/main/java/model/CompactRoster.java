@@ -0,0 +1,421 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+// Column-oriented storage for a whole roster. Ids are a primitive int column. Major and year are
+// short codes into the shared StringDictionary tables. First name, last name and email are UTF-8
+// bytes in one shared buffer. A row costs about 70 bytes this way instead of the 300 or so of a
+// Student with its boxed id and six Strings.
+//
+// get() returns a lightweight Student view of a row, so the roster can be used wherever a
+// List<Student> is expected. The view reads and writes the columns directly. Views address rows
+// by position, so they should not be kept across remove(). Use detach() for a standalone copy.
+public class CompactRoster extends AbstractList<Student> implements RandomAccess {
+    private static final int FIELDS = 3;
+    private static final int FIRST_NAME = 0;
+    private static final int LAST_NAME = 1;
+    private static final int EMAIL = 2;
+    // Text length marking a null value
+    private static final char NULL = Character.MAX_VALUE;
+
+    private int size;
+    private int[] ids;
+    private short[] majors;
+    private short[] years;
+    // Start and byte length of each row's three text fields in text
+    private int[] textStart;
+    private char[] textLength;
+    private byte[] text;
+    private int textSize;
+    // Bytes in text no row points to any more, left behind by edits and removals
+    private int garbage;
+    // True while ids only ever grew, which lets indexOfId() binary search
+    private boolean sorted = true;
+
+    public CompactRoster() {
+        this(1024);
+    }
+
+    public CompactRoster(int capacity) {
+        capacity = Math.max(capacity, 16);
+        ids = new int[capacity];
+        majors = new short[capacity];
+        years = new short[capacity];
+        textStart = new int[capacity * FIELDS];
+        textLength = new char[capacity * FIELDS];
+        text = new byte[capacity * 32];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Student get(int index) {
+        Objects.checkIndex(index, size);
+        return new Row(index);
+    }
+
+    @Override
+    public boolean add(Student student) {
+        add(student.getId() == null ? 0 : student.getId(), student.getFirstName(), student.getLastName(),
+                student.getMajor(), student.getEmail(), student.getYear());
+        return true;
+    }
+
+    // Appends a row straight from column values, without creating a Student first. An id of 0
+    // means the row has no id yet.
+    public void add(int id, String firstName, String lastName, String major, String email, String year) {
+        if (size == ids.length) {
+            grow();
+        }
+        if (size > 0 && id <= ids[size - 1]) {
+            sorted = false;
+        }
+        ids[size] = id;
+        majors[size] = code(StringDictionary.MAJORS, major);
+        years[size] = code(StringDictionary.YEARS, year);
+        size++;
+        setText(size - 1, FIRST_NAME, firstName);
+        setText(size - 1, LAST_NAME, lastName);
+        setText(size - 1, EMAIL, email);
+        modCount++;
+    }
+
+    // Overwrites a row with the student's values and returns a detached copy of what was there.
+    @Override
+    public Student set(int index, Student student) {
+        Student previous = detach(index);
+        setId(index, student.getId());
+        setFirstName(index, student.getFirstName());
+        setLastName(index, student.getLastName());
+        setMajor(index, student.getMajor());
+        setEmail(index, student.getEmail());
+        setYear(index, student.getYear());
+        return previous;
+    }
+
+    @Override
+    public Student remove(int index) {
+        Student removed = detach(index);
+        for (int field = 0; field < FIELDS; field++) {
+            garbage += length(index, field);
+        }
+        int tail = size - index - 1;
+        System.arraycopy(ids, index + 1, ids, index, tail);
+        System.arraycopy(majors, index + 1, majors, index, tail);
+        System.arraycopy(years, index + 1, years, index, tail);
+        System.arraycopy(textStart, (index + 1) * FIELDS, textStart, index * FIELDS, tail * FIELDS);
+        System.arraycopy(textLength, (index + 1) * FIELDS, textLength, index * FIELDS, tail * FIELDS);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    // Removes every row whose id is in the set with one pass over the columns, instead of shifting
+    // them once per row as remove() would. Returns how many rows went.
+    public int removeIds(Set<Integer> removed) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (removed.contains(ids[i])) {
+                for (int field = 0; field < FIELDS; field++) {
+                    garbage += length(i, field);
+                }
+                continue;
+            }
+            if (kept != i) {
+                ids[kept] = ids[i];
+                majors[kept] = majors[i];
+                years[kept] = years[i];
+                System.arraycopy(textStart, i * FIELDS, textStart, kept * FIELDS, FIELDS);
+                System.arraycopy(textLength, i * FIELDS, textLength, kept * FIELDS, FIELDS);
+            }
+            kept++;
+        }
+        int count = size - kept;
+        if (count > 0) {
+            size = kept;
+            modCount++;
+        }
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        textSize = 0;
+        garbage = 0;
+        sorted = true;
+        modCount++;
+    }
+
+    // Position of the row with this id, or -1.
+    public int indexOfId(int id) {
+        if (sorted) {
+            int found = Arrays.binarySearch(ids, 0, size, id);
+            return found >= 0 ? found : -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Column accessors, for scans that should not create a view per row
+    public int getId(int index) {
+        Objects.checkIndex(index, size);
+        return ids[index];
+    }
+
+    public String getFirstName(int index) {
+        return getText(index, FIRST_NAME);
+    }
+
+    public String getLastName(int index) {
+        return getText(index, LAST_NAME);
+    }
+
+    public String getEmail(int index) {
+        return getText(index, EMAIL);
+    }
+
+    public String getMajor(int index) {
+        Objects.checkIndex(index, size);
+        return StringDictionary.MAJORS.value(majors[index]);
+    }
+
+    public String getYear(int index) {
+        Objects.checkIndex(index, size);
+        return StringDictionary.YEARS.value(years[index]);
+    }
+
+    public void setId(int index, Integer id) {
+        Objects.checkIndex(index, size);
+        int value = id == null ? 0 : id;
+        if (ids[index] != value) {
+            ids[index] = value;
+            sorted = false;
+        }
+    }
+
+    public void setFirstName(int index, String firstName) {
+        replaceText(index, FIRST_NAME, firstName);
+    }
+
+    public void setLastName(int index, String lastName) {
+        replaceText(index, LAST_NAME, lastName);
+    }
+
+    public void setEmail(int index, String email) {
+        replaceText(index, EMAIL, email);
+    }
+
+    public void setMajor(int index, String major) {
+        Objects.checkIndex(index, size);
+        majors[index] = code(StringDictionary.MAJORS, major);
+    }
+
+    public void setYear(int index, String year) {
+        Objects.checkIndex(index, size);
+        years[index] = code(StringDictionary.YEARS, year);
+    }
+
+    // A plain Student with the row's current values, independent of this roster.
+    public Student detach(int index) {
+        return new Student(ids[Objects.checkIndex(index, size)] == 0 ? null : ids[index],
+                getFirstName(index), getLastName(index), getMajor(index), getEmail(index), getYear(index));
+    }
+
+    // Shrinks every column to the row count and drops text left behind by edits, e.g. once a
+    // roster has been loaded.
+    public void trimToSize() {
+        byte[] compacted = new byte[textSize - garbage];
+        int position = 0;
+        for (int slot = 0; slot < size * FIELDS; slot++) {
+            if (textLength[slot] != NULL) {
+                System.arraycopy(text, textStart[slot], compacted, position, textLength[slot]);
+                textStart[slot] = position;
+                position += textLength[slot];
+            }
+        }
+        text = compacted;
+        textSize = position;
+        garbage = 0;
+        ids = Arrays.copyOf(ids, size);
+        majors = Arrays.copyOf(majors, size);
+        years = Arrays.copyOf(years, size);
+        textStart = Arrays.copyOf(textStart, size * FIELDS);
+        textLength = Arrays.copyOf(textLength, size * FIELDS);
+    }
+
+    // Heap taken by the columns, not counting the shared dictionaries.
+    public long footprintBytes() {
+        return 4L * ids.length + 2L * majors.length + 2L * years.length
+                + 4L * textStart.length + 2L * textLength.length + text.length;
+    }
+
+    private static short code(StringDictionary dictionary, String value) {
+        int code = dictionary.code(value);
+        if (code > Short.MAX_VALUE) {
+            throw new IllegalStateException("More than " + Short.MAX_VALUE + " distinct values in a roster column");
+        }
+        return (short) code;
+    }
+
+    private int length(int index, int field) {
+        char length = textLength[index * FIELDS + field];
+        return length == NULL ? 0 : length;
+    }
+
+    private String getText(int index, int field) {
+        Objects.checkIndex(index, size);
+        int slot = index * FIELDS + field;
+        if (textLength[slot] == NULL) {
+            return null;
+        }
+        return new String(text, textStart[slot], textLength[slot], StandardCharsets.UTF_8);
+    }
+
+    private void replaceText(int index, int field, String value) {
+        Objects.checkIndex(index, size);
+        garbage += length(index, field);
+        setText(index, field, value);
+        if (garbage > textSize / 2 && textSize > 4096) {
+            trimToSize();
+        }
+    }
+
+    private void setText(int index, int field, String value) {
+        int slot = index * FIELDS + field;
+        if (value == null) {
+            textLength[slot] = NULL;
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL) {
+            throw new IllegalArgumentException("Value too long for a roster column: " + bytes.length + " bytes");
+        }
+        if (textSize + bytes.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(textSize + bytes.length, text.length + (text.length >> 1)));
+        }
+        System.arraycopy(bytes, 0, text, textSize, bytes.length);
+        textStart[slot] = textSize;
+        textLength[slot] = (char) bytes.length;
+        textSize += bytes.length;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        majors = Arrays.copyOf(majors, capacity);
+        years = Arrays.copyOf(years, capacity);
+        textStart = Arrays.copyOf(textStart, capacity * FIELDS);
+        textLength = Arrays.copyOf(textLength, capacity * FIELDS);
+    }
+
+    // A Student backed by one row of the roster. Getters read the columns. Setters write them and
+    // also go through Student's setters, which keep any table properties of the view in step.
+    private final class Row extends Student {
+        private final int index;
+
+        Row(int index) {
+            super(null, null, null, null, null, null);
+            this.index = index;
+        }
+
+        @Override
+        public Integer getId() {
+            int id = CompactRoster.this.getId(index);
+            return id == 0 ? null : id;
+        }
+
+        @Override
+        public void setId(Integer id) {
+            CompactRoster.this.setId(index, id);
+            super.setId(id);
+        }
+
+        @Override
+        public String getFirstName() {
+            return CompactRoster.this.getFirstName(index);
+        }
+
+        @Override
+        public void setFirstName(String firstName) {
+            CompactRoster.this.setFirstName(index, firstName);
+            super.setFirstName(firstName);
+        }
+
+        @Override
+        public String getLastName() {
+            return CompactRoster.this.getLastName(index);
+        }
+
+        @Override
+        public void setLastName(String lastName) {
+            CompactRoster.this.setLastName(index, lastName);
+            super.setLastName(lastName);
+        }
+
+        @Override
+        public String getMajor() {
+            return CompactRoster.this.getMajor(index);
+        }
+
+        @Override
+        public void setMajor(String major) {
+            CompactRoster.this.setMajor(index, major);
+            super.setMajor(major);
+        }
+
+        @Override
+        public String getEmail() {
+            return CompactRoster.this.getEmail(index);
+        }
+
+        @Override
+        public void setEmail(String email) {
+            CompactRoster.this.setEmail(index, email);
+            super.setEmail(email);
+        }
+
+        @Override
+        public String getYear() {
+            return CompactRoster.this.getYear(index);
+        }
+
+        @Override
+        public void setYear(String year) {
+            CompactRoster.this.setYear(index, year);
+            super.setYear(year);
+        }
+
+        // Two views of the same row are the same student
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Row row && row.owner() == CompactRoster.this && row.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(CompactRoster.this) * 31 + index;
+        }
+
+        @Override
+        public String toString() {
+            return detach(index).toString();
+        }
+
+        private CompactRoster owner() {
+            return CompactRoster.this;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps each distinct value of a low-cardinality column (major, year) to a small int code and
+// back, so a roster keeps one copy of "Computer Science" instead of one per row. Code 0 stands
+// for null. Codes are never reused or removed. Lookups are lock-free, and only a value seen for
+// the first time takes the lock.
+public class StringDictionary {
+    public static final StringDictionary MAJORS = new StringDictionary();
+    public static final StringDictionary YEARS = new StringDictionary();
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // Written under the lock, then republished through the volatile field for lock-free readers
+    private volatile String[] values = new String[16];
+    private int size = 1;
+
+    public int code(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    public String value(int code) {
+        return values[code];
+    }
+
+    // The shared instance equal to value, e.g. for a String fresh from the JDBC driver.
+    public String intern(String value) {
+        return value(code(value));
+    }
+
+    public synchronized int size() {
+        return size - 1;
+    }
+}
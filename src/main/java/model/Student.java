@@ -1,5 +1,15 @@
 package model;
 
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.Property;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
 public class Student {
     private Integer id;
     private String firstName;
@@ -9,6 +19,17 @@ public class Student {
 
     private String year;
 
+    // Observable views of the fields for the roster table, created the first time a cell asks for
+    // one, so Students that are never shown carry none. The fields stay the source of truth: setters
+    // may run on any thread and push the new value to an existing property on the FX thread, and
+    // setting a property (e.g. from a bound control) writes through to the field.
+    private ObjectProperty<Integer> idProperty;
+    private StringProperty firstNameProperty;
+    private StringProperty lastNameProperty;
+    private StringProperty majorProperty;
+    private StringProperty emailProperty;
+    private StringProperty yearProperty;
+
     public Student(Integer id, String firstName, String lastName, String major, String email, String year) {
         this.id = id;
         this.firstName = firstName;
@@ -24,6 +45,23 @@ public class Student {
 
     public void setEmail(String email) {
         this.email = email;
+        if (emailProperty != null) {
+            publish(emailProperty, this::getEmail);
+        }
+    }
+
+    public StringProperty emailProperty() {
+        if (emailProperty == null) {
+            emailProperty = new SimpleStringProperty(this, "email", getEmail()) {
+                @Override
+                protected void invalidated() {
+                    if (!Objects.equals(get(), getEmail())) {
+                        setEmail(get());
+                    }
+                }
+            };
+        }
+        return emailProperty;
     }
 
     public Integer getId() {
@@ -32,6 +70,23 @@ public class Student {
 
     public void setId(Integer id) {
         this.id = id;
+        if (idProperty != null) {
+            publish(idProperty, this::getId);
+        }
+    }
+
+    public ObjectProperty<Integer> idProperty() {
+        if (idProperty == null) {
+            idProperty = new SimpleObjectProperty<>(this, "id", getId()) {
+                @Override
+                protected void invalidated() {
+                    if (!Objects.equals(get(), getId())) {
+                        setId(get());
+                    }
+                }
+            };
+        }
+        return idProperty;
     }
 
     public String getFirstName() {
@@ -40,6 +95,23 @@ public class Student {
 
     public void setFirstName(String firstName) {
         this.firstName = firstName;
+        if (firstNameProperty != null) {
+            publish(firstNameProperty, this::getFirstName);
+        }
+    }
+
+    public StringProperty firstNameProperty() {
+        if (firstNameProperty == null) {
+            firstNameProperty = new SimpleStringProperty(this, "firstName", getFirstName()) {
+                @Override
+                protected void invalidated() {
+                    if (!Objects.equals(get(), getFirstName())) {
+                        setFirstName(get());
+                    }
+                }
+            };
+        }
+        return firstNameProperty;
     }
 
     public String getLastName() {
@@ -48,6 +120,23 @@ public class Student {
 
     public void setLastName(String lastName) {
         this.lastName = lastName;
+        if (lastNameProperty != null) {
+            publish(lastNameProperty, this::getLastName);
+        }
+    }
+
+    public StringProperty lastNameProperty() {
+        if (lastNameProperty == null) {
+            lastNameProperty = new SimpleStringProperty(this, "lastName", getLastName()) {
+                @Override
+                protected void invalidated() {
+                    if (!Objects.equals(get(), getLastName())) {
+                        setLastName(get());
+                    }
+                }
+            };
+        }
+        return lastNameProperty;
     }
 
     public String getMajor() {
@@ -56,6 +145,23 @@ public class Student {
 
     public void setMajor(String major) {
         this.major = major;
+        if (majorProperty != null) {
+            publish(majorProperty, this::getMajor);
+        }
+    }
+
+    public StringProperty majorProperty() {
+        if (majorProperty == null) {
+            majorProperty = new SimpleStringProperty(this, "major", getMajor()) {
+                @Override
+                protected void invalidated() {
+                    if (!Objects.equals(get(), getMajor())) {
+                        setMajor(get());
+                    }
+                }
+            };
+        }
+        return majorProperty;
     }
 
 
@@ -77,7 +183,32 @@ public class Student {
 
     public void setYear(String year) {
         this.year = year;
+        if (yearProperty != null) {
+            publish(yearProperty, this::getYear);
+        }
+    }
+
+    public StringProperty yearProperty() {
+        if (yearProperty == null) {
+            yearProperty = new SimpleStringProperty(this, "year", getYear()) {
+                @Override
+                protected void invalidated() {
+                    if (!Objects.equals(get(), getYear())) {
+                        setYear(get());
+                    }
+                }
+            };
+        }
+        return yearProperty;
     }
 
+    // Brings a property that exists up to date with its field. Off the FX thread the update is
+    // queued and reads the field again when it runs, so the latest value wins.
+    private static <T> void publish(Property<T> property, Supplier<T> field) {
+        if (Platform.isFxApplicationThread()) {
+            property.setValue(field.get());
+        } else {
+            Platform.runLater(() -> property.setValue(field.get()));
+        }
+    }
 }
-        
\ No newline at end of file
@@ -0,0 +1,29 @@
+package model;
+
+// Field rules shared by the entry form and the CSV import.
+public class StudentValidator {
+    private static final String NAME_PATTERN = "^[A-Za-z]{2,25}$";
+    private static final String EMAIL_DOMAIN = "@farmingdale.edu";
+
+    public static boolean isValidName(String name) {
+        return name != null && name.matches(NAME_PATTERN);
+    }
+
+    public static boolean isValidEmail(String email) {
+        return email != null && email.endsWith(EMAIL_DOMAIN);
+    }
+
+    // Returns a description of the first problem found, or null if the student is valid.
+    public static String validate(Student student) {
+        if (!isValidName(student.getFirstName())) {
+            return "Invalid first name. It should contain 2 to 25 alphabetical characters.";
+        }
+        if (!isValidName(student.getLastName())) {
+            return "Invalid last name. It should contain 2 to 25 alphabetical characters.";
+        }
+        if (!isValidEmail(student.getEmail())) {
+            return "Invalid email. It should end with " + EMAIL_DOMAIN + ".";
+        }
+        return null;
+    }
+}
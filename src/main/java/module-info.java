@@ -4,6 +4,7 @@ module com.example.csc311_db_ui_semesterlongproject {
     requires javafx.fxml;
     requires java.sql;
     requires java.prefs;
+    requires java.management;
     requires com.opencsv;
     requires org.apache.pdfbox;
     requires slf4j.api;
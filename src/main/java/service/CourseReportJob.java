@@ -0,0 +1,188 @@
+package service;
+
+import com.opencsv.CSVWriter;
+import dao.CourseRegistry;
+import dao.DbConnectivityClass;
+import javafx.concurrent.Task;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// End-of-term reports for many courses at once. Each course is worked on through its CourseRegistry
+// session and exported to CSV and PDF on a virtual thread; a semaphore caps how many courses run at the
+// same time so the server is not flooded. A course that fails is recorded in the summary and does
+// not stop the others. The combined summary is written to summary.csv in the output directory.
+public class CourseReportJob extends Task<List<CourseReportJob.CourseReport>> {
+    public static final int DEFAULT_PARALLELISM = Integer.getInteger("roster.reports.parallelism", 8);
+
+    private final List<String> courses;
+    private final File directory;
+    private final int parallelism;
+    private final AtomicInteger finished = new AtomicInteger();
+
+    public CourseReportJob(List<String> courses, File directory) {
+        this(courses, directory, DEFAULT_PARALLELISM);
+    }
+
+    public CourseReportJob(List<String> courses, File directory, int parallelism) {
+        this.courses = List.copyOf(courses);
+        this.directory = directory;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    protected List<CourseReport> call() throws Exception {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        updateMessage("Generating reports for " + courses.size() + " courses...");
+        updateProgress(0, courses.size());
+
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<CourseReport>> futures = new ArrayList<>(courses.size());
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("course-report-", 0).factory())) {
+            for (String course : courses) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return isCancelled() ? CourseReport.skipped(course) : report(course);
+                    } finally {
+                        permits.release();
+                        int done = finished.incrementAndGet();
+                        updateProgress(done, courses.size());
+                        updateMessage("Generated reports for " + done + " of " + courses.size() + " courses...");
+                    }
+                }));
+            }
+        }
+
+        List<CourseReport> reports = new ArrayList<>(futures.size());
+        for (Future<CourseReport> future : futures) {
+            try {
+                reports.add(future.get());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        writeSummary(reports);
+        return reports;
+    }
+
+    private CourseReport report(String course) {
+        long start = System.nanoTime();
+        // Shares the pool of a course that is also open in a tab; otherwise it is closed again afterwards.
+        // The reads bypass the session's cache so a report does not fill it with the whole roster.
+        DbConnectivityClass dao = CourseRegistry.acquire(course).uncached();
+        try {
+            Map<String, Integer> majors = dao.countByMajor();
+            File csv = new File(directory, course + ".csv");
+            File pdf = new File(directory, course + ".pdf");
+            // The export tasks run inline on this thread; get() rethrows whatever they failed with
+            CsvExportTask csvTask = new CsvExportTask(csv, dao);
+            csvTask.run();
+            long students = csvTask.get();
+            PdfExportTask pdfTask = new PdfExportTask(pdf, dao, course);
+            pdfTask.run();
+            pdfTask.get();
+            return new CourseReport(course, students, majors, null, System.nanoTime() - start);
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            MyLogger.makeLog("Report for " + course + " failed: " + cause);
+            return new CourseReport(course, 0, Collections.emptyMap(), String.valueOf(cause.getMessage()), System.nanoTime() - start);
+        } finally {
+            CourseRegistry.release(course);
+        }
+    }
+
+    // One row per course with its student count per major; majors are the union over all courses.
+    private void writeSummary(List<CourseReport> reports) throws IOException {
+        TreeSet<String> majors = new TreeSet<>();
+        for (CourseReport report : reports) {
+            for (String major : report.getMajors().keySet()) {
+                majors.add(major == null ? "" : major);
+            }
+        }
+        File summary = new File(directory, "summary.csv");
+        try (CSVWriter writer = new CSVWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(summary), StandardCharsets.UTF_8)))) {
+            List<String> header = new ArrayList<>(List.of("Course", "Students", "Status", "Seconds"));
+            header.addAll(majors);
+            writer.writeNext(header.toArray(new String[0]));
+
+            long total = 0;
+            for (CourseReport report : reports) {
+                List<String> row = new ArrayList<>(List.of(
+                        report.getCourse(),
+                        String.valueOf(report.getStudents()),
+                        report.getError() == null ? "OK" : "FAILED: " + report.getError(),
+                        String.format("%.1f", report.getNanos() / 1e9)));
+                for (String major : majors) {
+                    row.add(String.valueOf(report.getMajors().getOrDefault(major.isEmpty() ? null : major, 0)));
+                }
+                writer.writeNext(row.toArray(new String[0]));
+                total += report.getStudents();
+            }
+            writer.writeNext(new String[]{"TOTAL", String.valueOf(total)});
+            if (writer.checkError()) {
+                throw new IOException("Could not write " + summary);
+            }
+        }
+    }
+
+    public static class CourseReport {
+        private final String course;
+        private final long students;
+        private final Map<String, Integer> majors;
+        private final String error;
+        private final long nanos;
+
+        CourseReport(String course, long students, Map<String, Integer> majors, String error, long nanos) {
+            this.course = course;
+            this.students = students;
+            this.majors = majors;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        static CourseReport skipped(String course) {
+            return new CourseReport(course, 0, Collections.emptyMap(), "cancelled", 0);
+        }
+
+        public String getCourse() {
+            return course;
+        }
+
+        public long getStudents() {
+            return students;
+        }
+
+        public Map<String, Integer> getMajors() {
+            return majors;
+        }
+
+        // Null when the course was exported successfully.
+        public String getError() {
+            return error;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package service;
+
+import com.opencsv.CSVWriter;
+import dao.DbConnectivityClass;
+import javafx.concurrent.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+// Streams the roster straight from a server-side cursor into a CSV file, optionally gzipped.
+// Rows go from the result set to the writer one at a time, so heap use does not depend on the
+// size of the table. The columns match what CsvImportTask reads back in.
+public class CsvExportTask extends Task<Long> {
+    public static final String[] HEADER = {"ID", "FirstName", "LastName", "Major", "Email", "Year"};
+    private static final int FETCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
+    private final File file;
+    private final DbConnectivityClass dao;
+    private final boolean gzip;
+
+    private long written;
+    private long lastProgressUpdate;
+
+    public CsvExportTask(File file, DbConnectivityClass dao) {
+        this(file, dao, file.getName().endsWith(".gz"));
+    }
+
+    public CsvExportTask(File file, DbConnectivityClass dao, boolean gzip) {
+        this.file = file;
+        this.dao = dao;
+        this.gzip = gzip;
+    }
+
+    @Override
+    protected Long call() throws Exception {
+        updateMessage("Exporting " + file.getName() + "...");
+        long total = Math.max(1, dao.countUsers());
+        long rows;
+        boolean complete = false;
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        try {
+            try (CSVWriter writer = new CSVWriter(new BufferedWriter(
+                    new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+                writer.writeNext(HEADER);
+                rows = dao.streamUsers(FETCH_SIZE, row -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    writer.writeNext(row);
+                    written++;
+                    long now = System.nanoTime();
+                    if (now - lastProgressUpdate > PROGRESS_INTERVAL_NANOS) {
+                        lastProgressUpdate = now;
+                        updateProgress(written, total);
+                    }
+                });
+                // CSVWriter swallows write errors, so a full disk only shows up here
+                if (writer.checkError()) {
+                    throw new IOException("Could not write " + file);
+                }
+            }
+            complete = true;
+        } finally {
+            if (!complete && !file.delete()) {
+                MyLogger.makeLog("Could not remove incomplete export " + file);
+            }
+        }
+        updateProgress(1, 1);
+        updateMessage("Exported " + rows + " students");
+        return rows;
+    }
+}
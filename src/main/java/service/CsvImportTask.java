@@ -0,0 +1,284 @@
+package service;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import dao.BulkInsertResult;
+import dao.DbConnectivityClass;
+import javafx.concurrent.Task;
+import model.Student;
+import model.StudentValidator;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+// Imports a CSV file through a read -> map -> validate -> write pipeline. The reader runs on the
+// task thread and each other stage on its own worker; the bounded queues between them keep memory
+// flat because a fast reader simply blocks until the database writer catches up. In merge mode
+// rows are upserted by email instead of inserted, so a new enrollment file can be imported over
+// the existing roster.
+public class CsvImportTask extends Task<BulkInsertResult> {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+    private static final RawRow END_OF_LINES = new RawRow(-1, null);
+    private static final ImportRow END_OF_ROWS = new ImportRow(-1, null);
+
+    private final File file;
+    private final DbConnectivityClass dao;
+    private final int batchSize;
+    private final boolean merge;
+
+    private final BlockingQueue<RawRow> lines = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<ImportRow> mapped = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<ImportRow> validated = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BulkInsertResult result = new BulkInsertResult();
+
+    private ExecutorService stages;
+    private Thread readerThread;
+    private volatile Exception stageError;
+    private volatile long lastProgressUpdate;
+
+    public CsvImportTask(File file, DbConnectivityClass dao) {
+        this(file, dao, DbConnectivityClass.DEFAULT_BATCH_SIZE, false);
+    }
+
+    public CsvImportTask(File file, DbConnectivityClass dao, int batchSize) {
+        this(file, dao, batchSize, false);
+    }
+
+    public CsvImportTask(File file, DbConnectivityClass dao, boolean merge) {
+        this(file, dao, DbConnectivityClass.DEFAULT_BATCH_SIZE, merge);
+    }
+
+    public CsvImportTask(File file, DbConnectivityClass dao, int batchSize, boolean merge) {
+        this.file = file;
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.merge = merge;
+    }
+
+    // Rows committed so far; still meaningful after the task was cancelled.
+    public BulkInsertResult getPartialResult() {
+        synchronized (result) {
+            BulkInsertResult copy = new BulkInsertResult();
+            copy.merge(result, 0);
+            return copy;
+        }
+    }
+
+    @Override
+    protected BulkInsertResult call() throws Exception {
+        readerThread = Thread.currentThread();
+        stages = Executors.newFixedThreadPool(3, r -> {
+            Thread thread = new Thread(r, "csv-import-stage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long length = Math.max(1, file.length());
+        updateMessage((merge ? "Merging " : "Importing ") + file.getName() + "...");
+
+        // Progress is measured on the file itself, so it also works for gzipped exports
+        try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+             CSVReader reader = new CSVReader(new InputStreamReader(
+                     file.getName().endsWith(".gz") ? new GZIPInputStream(in) : in, StandardCharsets.UTF_8))) {
+            // Assuming CSV format: ID,FirstName,LastName,Major,Email,Year
+            String[] header = reader.readNext();
+            if (header == null || header.length != 6) {
+                throw new IOException("Invalid CSV file format. Please make sure the file has the correct header.");
+            }
+
+            stages.submit(() -> runStage(this::mapRows));
+            stages.submit(() -> runStage(this::validateRows));
+            Future<?> writer = stages.submit(() -> runStage(this::writeRows));
+
+            int number = 0;
+            String[] fields;
+            while (!isCancelled() && (fields = reader.readNext()) != null) {
+                lines.put(new RawRow(++number, fields));
+                long now = System.nanoTime();
+                if (now - lastProgressUpdate > PROGRESS_INTERVAL_NANOS) {
+                    lastProgressUpdate = now;
+                    updateProgress(in.getCount(), length);
+                }
+            }
+            if (isCancelled()) {
+                return getPartialResult();
+            }
+            lines.put(END_OF_LINES);
+            writer.get();
+        } catch (InterruptedException | ExecutionException e) {
+            if (stageError != null) {
+                throw stageError;
+            }
+            if (isCancelled()) {
+                return getPartialResult();
+            }
+            throw e;
+        } catch (CsvValidationException e) {
+            throw new IOException("Malformed CSV at line " + e.getLineNumber(), e);
+        } finally {
+            stages.shutdownNow();
+        }
+
+        if (stageError != null) {
+            throw stageError;
+        }
+        updateProgress(1, 1);
+        return getPartialResult();
+    }
+
+    private void mapRows() throws InterruptedException {
+        while (true) {
+            RawRow row = lines.take();
+            if (row == END_OF_LINES) {
+                mapped.put(END_OF_ROWS);
+                return;
+            }
+            String[] f = row.fields;
+            if (f.length < 6) {
+                reject(row.number, null, "Expected 6 columns but found " + f.length);
+                continue;
+            }
+            // ID column is ignored, the database assigns a new one
+            mapped.put(new ImportRow(row.number, new Student(null, f[1], f[2], f[3], f[4], f[5])));
+        }
+    }
+
+    private void validateRows() throws InterruptedException {
+        while (true) {
+            ImportRow row = mapped.take();
+            if (row == END_OF_ROWS) {
+                validated.put(END_OF_ROWS);
+                return;
+            }
+            String problem = StudentValidator.validate(row.student);
+            if (problem != null) {
+                reject(row.number, row.student, problem);
+            } else {
+                validated.put(row);
+            }
+        }
+    }
+
+    private void writeRows() throws InterruptedException {
+        List<Student> batch = new ArrayList<>(batchSize);
+        int[] numbers = new int[batchSize];
+        while (true) {
+            ImportRow row = validated.take();
+            if (row == END_OF_ROWS) {
+                flush(batch, numbers);
+                return;
+            }
+            numbers[batch.size()] = row.number;
+            batch.add(row.student);
+            if (batch.size() == batchSize) {
+                flush(batch, numbers);
+            }
+        }
+    }
+
+    private void flush(List<Student> batch, int[] numbers) {
+        if (batch.isEmpty() || isCancelled()) {
+            return;
+        }
+        BulkInsertResult chunk = merge ? dao.mergeUsers(batch, batchSize) : dao.insertUsers(batch, batchSize);
+        int written;
+        synchronized (result) {
+            result.addInserted(chunk.getInserted());
+            result.addUpdated(chunk.getUpdated());
+            result.addUnchanged(chunk.getUnchanged());
+            for (BulkInsertResult.RowFailure failure : chunk.getFailures()) {
+                result.addFailure(numbers[failure.getIndex()], failure.getStudent(), failure.getReason());
+            }
+            written = result.getInserted() + result.getUpdated() + result.getUnchanged();
+        }
+        batch.clear();
+        updateMessage((merge ? "Merged " : "Imported ") + written + " students...");
+    }
+
+    private void reject(int number, Student student, String reason) {
+        synchronized (result) {
+            result.addFailure(number, student, reason);
+        }
+    }
+
+    private void runStage(Stage stage) {
+        try {
+            stage.run();
+        } catch (InterruptedException e) {
+            // pipeline is shutting down
+        } catch (Exception e) {
+            stageError = e;
+            stages.shutdownNow();
+            readerThread.interrupt();
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private static final class RawRow {
+        final int number;
+        final String[] fields;
+
+        RawRow(int number, String[] fields) {
+            this.number = number;
+            this.fields = fields;
+        }
+    }
+
+    private static final class ImportRow {
+        final int number;
+        final Student student;
+
+        ImportRow(int number, Student student) {
+            this.number = number;
+            this.student = student;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -1,17 +1,236 @@
 package service;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+// Callers only check the level and copy their arguments into a preallocated ring buffer slot.
+// Formatting and the java.util.logging call happen on a background writer thread. Messages are
+// built lazily, from a Supplier or a "{}" pattern, and only when the level is enabled, so logging
+// every row of a large listing costs little when INFO is off and does not hold up the query when it is on.
+// When the buffer is full, records below WARNING are dropped and counted. WARNING and SEVERE
+// records wait for space instead. Set roster.log.level, roster.log.bufferSize and
+// roster.log.overflow (DROP or BLOCK) to change the defaults.
 public class MyLogger {
 
+    public enum Overflow { DROP, BLOCK }
+
     private final static Logger LOGGER =
             Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
+    private static final String PREFIX = "CSC311_Log__ ";
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(16, Integer.getInteger("roster.log.bufferSize", 8192)));
+    private static final int MASK = CAPACITY - 1;
+    private static final Overflow OVERFLOW = Overflow.valueOf(System.getProperty("roster.log.overflow", "DROP"));
+
+    private static final Entry[] RING = new Entry[CAPACITY];
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final Condition NOT_EMPTY = LOCK.newCondition();
+    private static final Condition NOT_FULL = LOCK.newCondition();
+    // Both guarded by LOCK. Slots in [head, tail) are waiting for the writer.
+    private static long head;
+    private static long tail;
+    private static long dropped;
+    // Writer thread only
+    private static long reportedDrops;
+
+    static {
+        LOGGER.setLevel(Level.parse(System.getProperty("roster.log.level", "INFO")));
+        for (int i = 0; i < CAPACITY; i++) {
+            RING[i] = new Entry();
+        }
+        Thread writer = new Thread(MyLogger::drain, "roster-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(2, TimeUnit.SECONDS)));
+    }
+
+    public static boolean isLoggable(Level level) {
+        return LOGGER.isLoggable(level);
+    }
 
     public static void makeLog(String msg)
     {
-        LOGGER.log(Level.INFO, "CSC311_Log__ "+msg);
+        log(Level.INFO, msg, null, 0, null, null, null);
+    }
+
+    public static void makeLog(Supplier<String> msg) {
+        log(Level.INFO, null, msg, 0, null, null, null);
+    }
+
+    // Each "{}" in the pattern is replaced by the next argument on the writer thread. Arguments
+    // should be immutable values, since they are read after this call returns.
+    public static void makeLog(String pattern, Object arg) {
+        log(Level.INFO, pattern, null, 1, arg, null, null);
+    }
+
+    public static void makeLog(String pattern, Object arg1, Object arg2) {
+        log(Level.INFO, pattern, null, 2, arg1, arg2, null);
+    }
+
+    public static void makeLog(String pattern, Object... args) {
+        log(Level.INFO, pattern, null, args.length, null, null, args);
+    }
+
+    public static void log(Level level, Supplier<String> msg) {
+        log(level, null, msg, 0, null, null, null);
+    }
+
+    public static void log(Level level, String pattern, Object... args) {
+        log(level, pattern, null, args.length, null, null, args);
+    }
+
+    public static long getDroppedCount() {
+        LOCK.lock();
+        try {
+            return dropped;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    // Waits until everything logged so far has been written, e.g. before the application exits.
+    public static boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        LOCK.lock();
+        try {
+            long target = tail;
+            while (head < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                NOT_FULL.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void log(Level level, String pattern, Supplier<String> supplier,
+                            int argCount, Object arg1, Object arg2, Object[] args) {
+        if (!LOGGER.isLoggable(level)) {
+            return;
+        }
+        boolean mustKeep = OVERFLOW == Overflow.BLOCK || level.intValue() >= Level.WARNING.intValue();
+        LOCK.lock();
+        try {
+            while (tail - head == CAPACITY) {
+                if (!mustKeep) {
+                    dropped++;
+                    return;
+                }
+                NOT_FULL.awaitUninterruptibly();
+            }
+            Entry entry = RING[(int) (tail & MASK)];
+            entry.level = level;
+            entry.pattern = pattern;
+            entry.supplier = supplier;
+            entry.argCount = argCount;
+            entry.arg1 = arg1;
+            entry.arg2 = arg2;
+            entry.args = args;
+            tail++;
+            NOT_EMPTY.signal();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    // Writer loop: takes every pending slot at once, writes them outside the lock, then hands the
+    // slots back. Producers cannot reuse a slot before head moves past it.
+    private static void drain() {
+        StringBuilder text = new StringBuilder(256);
+        while (true) {
+            long from;
+            long to;
+            long droppedSoFar;
+            LOCK.lock();
+            try {
+                while (head == tail) {
+                    NOT_EMPTY.awaitUninterruptibly();
+                }
+                from = head;
+                to = tail;
+                droppedSoFar = dropped;
+            } finally {
+                LOCK.unlock();
+            }
+
+            for (long i = from; i < to; i++) {
+                Entry entry = RING[(int) (i & MASK)];
+                try {
+                    LOGGER.log(entry.level, entry.format(text));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                entry.clear();
+            }
+
+            LOCK.lock();
+            try {
+                head = to;
+                NOT_FULL.signalAll();
+            } finally {
+                LOCK.unlock();
+            }
+            reportDropped(droppedSoFar);
+        }
+    }
+
+    private static void reportDropped(long droppedSoFar) {
+        if (droppedSoFar > reportedDrops) {
+            LOGGER.log(Level.WARNING, PREFIX + (droppedSoFar - reportedDrops) + " log records dropped, buffer full");
+            reportedDrops = droppedSoFar;
+        }
+    }
+
+    private static class Entry {
+        Level level;
+        String pattern;
+        Supplier<String> supplier;
+        int argCount;
+        Object arg1;
+        Object arg2;
+        Object[] args;
+
+        String format(StringBuilder text) {
+            text.setLength(0);
+            text.append(PREFIX);
+            if (supplier != null) {
+                return text.append(supplier.get()).toString();
+            }
+            int next = 0;
+            int argIndex = 0;
+            int marker;
+            while ((marker = pattern.indexOf("{}", next)) >= 0 && argIndex < argCount) {
+                text.append(pattern, next, marker).append(arg(argIndex++));
+                next = marker + 2;
+            }
+            return text.append(pattern, next, pattern.length()).toString();
+        }
+
+        private Object arg(int index) {
+            if (args != null) {
+                return args[index];
+            }
+            return index == 0 ? arg1 : arg2;
+        }
 
+        void clear() {
+            level = null;
+            pattern = null;
+            supplier = null;
+            arg1 = null;
+            arg2 = null;
+            args = null;
+        }
     }
 }
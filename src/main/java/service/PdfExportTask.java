@@ -0,0 +1,217 @@
+package service;
+
+import dao.DbConnectivityClass;
+import javafx.concurrent.Task;
+import model.Student;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+// Writes the roster to a paginated PDF on a background thread. Students are read from the
+// database one keyset chunk at a time and each page is handed to PDFBox's scratch file once it is
+// full, so memory stays flat however large the course is. Every page repeats the column headers
+// and gets a "Page n of N" footer.
+public class PdfExportTask extends Task<Integer> {
+    // Document objects beyond this are kept in a temporary scratch file instead of the heap
+    private static final long MAX_MAIN_MEMORY_BYTES = 8L * 1024 * 1024;
+    private static final int CHUNK_SIZE = 500;
+
+    private static final PDFont TITLE_FONT = PDType1Font.HELVETICA_BOLD;
+    private static final PDFont HEADER_FONT = PDType1Font.HELVETICA_BOLD;
+    private static final PDFont BODY_FONT = PDType1Font.HELVETICA;
+    private static final float TITLE_SIZE = 12;
+    private static final float BODY_SIZE = 9;
+    private static final float MARGIN = 50;
+    private static final float ROW_HEIGHT = 14;
+    private static final float CELL_PADDING = 4;
+
+    private static final String[] HEADERS = {"ID", "FirstName", "LastName", "Year", "Major", "Email"};
+    private static final float[] COLUMN_WIDTHS = {40, 85, 85, 45, 105, 152};
+
+    private final File file;
+    private final DbConnectivityClass dao;
+    private final String courseName;
+
+    private PDDocument document;
+    private PDPageContentStream content;
+    private float y;
+
+    public PdfExportTask(File file, DbConnectivityClass dao, String courseName) {
+        this.file = file;
+        this.dao = dao;
+        this.courseName = courseName;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        updateMessage("Exporting PDF...");
+        int total = dao.countUsers();
+        int[] chunkStartIds = dao.fetchPageStartIds(CHUNK_SIZE);
+        int written = 0;
+
+        document = new PDDocument(MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY_BYTES));
+        try {
+            startPage(total);
+            for (int i = 0; i < chunkStartIds.length && !isCancelled(); i++) {
+                int toId = i + 1 < chunkStartIds.length ? chunkStartIds[i + 1] : Integer.MAX_VALUE;
+                List<Student> students = dao.fetchPage(chunkStartIds[i], toId);
+                for (Student student : students) {
+                    if (y - ROW_HEIGHT < MARGIN + ROW_HEIGHT) {
+                        finishPage();
+                        startPage(total);
+                    }
+                    writeRow(BODY_FONT, new String[]{
+                            String.valueOf(student.getId()),
+                            student.getFirstName(),
+                            student.getLastName(),
+                            student.getYear(),
+                            student.getMajor(),
+                            student.getEmail()
+                    });
+                }
+                written += students.size();
+                updateProgress(written, Math.max(total, written));
+                updateMessage("Exported " + written + " students to PDF...");
+            }
+            finishPage();
+            if (isCancelled()) {
+                return written;
+            }
+
+            addPageNumbers();
+            document.save(file);
+        } finally {
+            if (content != null) {
+                content.close();
+                content = null;
+            }
+            document.close();
+        }
+        updateProgress(1, 1);
+        return written;
+    }
+
+    private void startPage(int total) throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        content = new PDPageContentStream(document, page);
+        y = page.getMediaBox().getHeight() - MARGIN;
+
+        if (document.getNumberOfPages() == 1) {
+            writeLine(TITLE_FONT, TITLE_SIZE, "Course: " + courseName);
+            writeLine(TITLE_FONT, TITLE_SIZE, "Student List for " + courseName);
+            writeLine(BODY_FONT, BODY_SIZE, "Total Students: " + total);
+            y -= ROW_HEIGHT / 2;
+        }
+        writeRow(HEADER_FONT, HEADERS);
+        float right = MARGIN + sum(COLUMN_WIDTHS);
+        content.moveTo(MARGIN, y - 3);
+        content.lineTo(right, y - 3);
+        content.stroke();
+    }
+
+    // Closing the content stream lets PDFBox move the finished page out to the scratch file.
+    private void finishPage() throws IOException {
+        if (content != null) {
+            content.close();
+            content = null;
+        }
+    }
+
+    private void addPageNumbers() throws IOException {
+        int pages = document.getNumberOfPages();
+        for (int i = 0; i < pages; i++) {
+            PDPage page = document.getPage(i);
+            try (PDPageContentStream footer = new PDPageContentStream(document, page,
+                    PDPageContentStream.AppendMode.APPEND, true, true)) {
+                String text = "Page " + (i + 1) + " of " + pages;
+                float width = BODY_FONT.getStringWidth(text) / 1000 * BODY_SIZE;
+                footer.beginText();
+                footer.setFont(BODY_FONT, BODY_SIZE);
+                footer.newLineAtOffset((page.getMediaBox().getWidth() - width) / 2, MARGIN / 2);
+                footer.showText(text);
+                footer.endText();
+            }
+        }
+    }
+
+    private void writeLine(PDFont font, float size, String text) throws IOException {
+        y -= size + 6;
+        content.beginText();
+        content.setFont(font, size);
+        content.newLineAtOffset(MARGIN, y);
+        content.showText(printable(font, text));
+        content.endText();
+    }
+
+    private void writeRow(PDFont font, String[] cells) throws IOException {
+        y -= ROW_HEIGHT;
+        content.beginText();
+        content.setFont(font, BODY_SIZE);
+        content.newLineAtOffset(MARGIN, y);
+        for (int i = 0; i < cells.length; i++) {
+            content.showText(fit(font, cells[i], COLUMN_WIDTHS[i] - CELL_PADDING));
+            if (i + 1 < cells.length) {
+                content.newLineAtOffset(COLUMN_WIDTHS[i], 0);
+            }
+        }
+        content.endText();
+    }
+
+    // Cuts a cell down to its column width, ending it with "..." when something was dropped.
+    private static String fit(PDFont font, String text, float width) throws IOException {
+        String value = printable(font, text);
+        if (textWidth(font, value) <= width) {
+            return value;
+        }
+        float ellipsis = textWidth(font, "...");
+        int end = value.length();
+        while (end > 0 && textWidth(font, value.substring(0, end)) + ellipsis > width) {
+            end--;
+        }
+        return value.substring(0, end) + "...";
+    }
+
+    // The standard 14 fonts only cover WinAnsi; anything else would make showText throw.
+    private static String printable(PDFont font, String text) throws IOException {
+        if (text == null) {
+            return "";
+        }
+        try {
+            font.encode(text);
+            return text;
+        } catch (IllegalArgumentException e) {
+            StringBuilder result = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                String c = String.valueOf(text.charAt(i));
+                try {
+                    font.encode(c);
+                    result.append(c);
+                } catch (IllegalArgumentException unsupported) {
+                    result.append('?');
+                }
+            }
+            return result.toString();
+        }
+    }
+
+    private static float textWidth(PDFont font, String text) throws IOException {
+        return font.getStringWidth(text) / 1000 * BODY_SIZE;
+    }
+
+    private static float sum(float[] values) {
+        float total = 0;
+        for (float value : values) {
+            total += value;
+        }
+        return total;
+    }
+}
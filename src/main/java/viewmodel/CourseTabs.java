@@ -0,0 +1,83 @@
+package viewmodel;
+
+import dao.CourseRegistry;
+import dao.RosterCache;
+import javafx.collections.ListChangeListener;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+
+// The main window: one tab per open course. Each tab loads its own copy of db_interface_gui.fxml
+// with a controller bound to that course's CourseRegistry session, so several courses can be
+// open side by side. Removing a tab releases its session; when the last one goes, the login
+// screen comes back.
+public class CourseTabs {
+    public static final double WIDTH = 900;
+    // The course view is 600 high; the tab headers sit on top of it
+    public static final double HEIGHT = 630;
+
+    private final TabPane tabPane = new TabPane();
+
+    public CourseTabs() {
+        tabPane.getTabs().addListener((ListChangeListener<Tab>) change -> {
+            while (change.next()) {
+                for (Tab tab : change.getRemoved()) {
+                    ((DB_GUI_Controller) tab.getUserData()).closeSession();
+                }
+            }
+            if (tabPane.getTabs().isEmpty() && tabPane.getScene() != null) {
+                showLogin();
+            }
+        });
+    }
+
+    public Parent getRoot() {
+        return tabPane;
+    }
+
+    // Switches to the course's tab, opening it first if it is not open yet.
+    public void open(String course) throws IOException {
+        for (Tab tab : tabPane.getTabs()) {
+            if (tab.getText().equals(course)) {
+                tabPane.getSelectionModel().select(tab);
+                return;
+            }
+        }
+        RosterCache session = CourseRegistry.acquire(course);
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/db_interface_gui.fxml"));
+        loader.setControllerFactory(type -> new DB_GUI_Controller(this, session));
+        Parent content;
+        try {
+            content = loader.load();
+        } catch (IOException | RuntimeException e) {
+            CourseRegistry.release(course);
+            throw e;
+        }
+        Tab tab = new Tab(course, content);
+        tab.setUserData(loader.getController());
+        tabPane.getTabs().add(tab);
+        tabPane.getSelectionModel().select(tab);
+    }
+
+    public void closeAll() {
+        tabPane.getTabs().clear();
+    }
+
+    private void showLogin() {
+        try {
+            Parent root = FXMLLoader.load(getClass().getResource("/view/login.fxml"));
+            Scene scene = new Scene(root, 900, 600);
+            scene.getStylesheets().add(getClass().getResource("/css/lightTheme.css").toExternalForm());
+            Stage window = (Stage) tabPane.getScene().getWindow();
+            window.setScene(scene);
+            window.show();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,24 +1,35 @@
 package viewmodel;
 
-import com.opencsv.exceptions.CsvValidationException;
+import dao.AsyncDbConnectivityClass;
+import dao.BulkInsertResult;
+import dao.CourseRegistry;
 import dao.DbConnectivityClass;
+import dao.EditJournal;
+import dao.PagedStudentList;
+import dao.RosterCache;
+import dao.RosterSnapshot;
+import dao.StudentColumn;
+import dao.WriteBehindBuffer;
+import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
+import javafx.css.PseudoClass;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -26,33 +37,37 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import javafx.util.converter.IntegerStringConverter;
 import model.Student;
+import model.StudentValidator;
+import service.CourseReportJob;
+import service.CsvExportTask;
+import service.CsvImportTask;
+import service.PdfExportTask;
 import service.MyLogger;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;
-
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import java.io.*;
 import java.net.URL;
-import java.util.ArrayList;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-public class DB_GUI_Controller implements Initializable {
+public final class DB_GUI_Controller implements Initializable {
 
     @FXML
     TextField first_name, last_name, major, email, year;
@@ -77,25 +92,77 @@ public class DB_GUI_Controller implements Initializable {
     @FXML
     private Label statusLabel;
     @FXML
+    private MenuItem exportCsvItem;
+    @FXML
     private MenuItem exportPdfItem;
-
-    private final DbConnectivityClass cnUtil = new DbConnectivityClass();
-    private final ObservableList<Student> data = cnUtil.getData();
+    @FXML
+    private MenuItem termReportsItem;
+    @FXML
+    private MenuItem cancelImportItem;
+    @FXML
+    private ProgressBar importProgress;
+    @FXML
+    private TextField searchField;
+
+    private static final PseudoClass PENDING = PseudoClass.getPseudoClass("pending");
+
+    // The window this course's tab lives in
+    private final CourseTabs tabs;
+    // This tab's course session; rows loaded for the table are indexed there, so lookups by
+    // id/email/last name stay local
+    private final RosterCache cnUtil;
+    private final AsyncDbConnectivityClass asyncDb;
+    // Keeps writes made while the server is unreachable until it is back; null if it could not be opened
+    private final EditJournal journal;
+    // Rows with a database write still in flight, shown greyed out until it completes
+    private final Set<Student> pendingRows = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final WriteBehindBuffer writeBehind;
+    // Only a window of pages around what the table shows is kept in memory
+    private final PagedStudentList data;
+    // The local roster snapshot is rewritten after a sync, at most this often
+    private static final long SNAPSHOT_INTERVAL_MILLIS = 5 * 60_000;
+    private long snapshotWrittenAt;
 
     private final BooleanProperty isEditDisabled = new SimpleBooleanProperty(true);
     private final BooleanProperty isDeleteDisabled = new SimpleBooleanProperty(true);
     private final BooleanProperty isAddDisabled = new SimpleBooleanProperty(true);
+    private CsvImportTask importTask;
+    private Task<?> exportTask;
+    private static final int SEARCH_LIMIT = 200;
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(250));
+    private int searchGeneration;
+    private boolean rosterChangedDuringSearch;
+    // Pulls in edits made by other sessions; only the rows changed since the last sync are read
+    private final Timeline rosterSync = new Timeline(new KeyFrame(Duration.seconds(15), event -> syncRoster()));
+
+    public DB_GUI_Controller(CourseTabs tabs, RosterCache session) {
+        this.tabs = tabs;
+        this.cnUtil = session;
+        this.journal = openJournal(session.getCourse());
+        this.asyncDb = new AsyncDbConnectivityClass(session, journal);
+        this.writeBehind = new WriteBehindBuffer(session);
+        writeBehind.setJournal(journal);
+        // Reloading a row must not undo a cell edit that is still buffered
+        session.setPendingEdits(writeBehind::isDirty);
+        // Rows from the last session's snapshot show at once; the server's changes follow
+        this.data = new PagedStudentList(session, RosterSnapshot.load(session.getCourse()));
+    }
 
     @Override
     public void initialize(URL ul, ResourceBundle resourceBundle) {
         try {
-            tv_id.setCellValueFactory(new PropertyValueFactory<>("id"));
-            tv_fn.setCellValueFactory(new PropertyValueFactory<>("firstName"));
-            tv_ln.setCellValueFactory(new PropertyValueFactory<>("lastName"));
-            tv_year.setCellValueFactory(new PropertyValueFactory<>("year"));
-            tv_major.setCellValueFactory(new PropertyValueFactory<>("major"));
-            tv_email.setCellValueFactory(new PropertyValueFactory<>("email"));
+            // Direct property accessors: no reflection and no wrapper per cell update, and edits to
+            // a Student show up in its row without a table refresh
+            tv_id.setCellValueFactory(cell -> cell.getValue().idProperty());
+            tv_fn.setCellValueFactory(cell -> cell.getValue().firstNameProperty());
+            tv_ln.setCellValueFactory(cell -> cell.getValue().lastNameProperty());
+            tv_year.setCellValueFactory(cell -> cell.getValue().yearProperty());
+            tv_major.setCellValueFactory(cell -> cell.getValue().majorProperty());
+            tv_email.setCellValueFactory(cell -> cell.getValue().emailProperty());
             tv.setItems(data);
+            // The paged list is ordered by id on the server and cannot be sorted in place; the
+            // default sort policy would fetch every page to copy it and then fail on setAll
+            tv.setSortPolicy(table -> false);
             tv.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
                 if (newSelection == null) {
                     isEditDisabled.set(true);
@@ -106,11 +173,8 @@ public class DB_GUI_Controller implements Initializable {
                 }
             });
 
-            tv.setOnMouseClicked(event -> {
-                if (event.getClickCount() == 1) {
-                    tv.getSelectionModel().clearSelection();
-                }
-            });
+            // Several rows can be selected for bulk delete and bulk major/year changes
+            tv.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
             isAddDisabled.bind(Bindings.createBooleanBinding(() ->
                             first_name.getText().isEmpty() ||
@@ -132,7 +196,13 @@ public class DB_GUI_Controller implements Initializable {
             majorComboBox.getSelectionModel().selectFirst();
 
             tv.setRowFactory(tv -> {
-                TableRow<Student> row = new TableRow<>();
+                TableRow<Student> row = new TableRow<>() {
+                    @Override
+                    protected void updateItem(Student item, boolean empty) {
+                        super.updateItem(item, empty);
+                        pseudoClassStateChanged(PENDING, !empty && pendingRows.contains(item));
+                    }
+                };
                 row.setOnMouseClicked(event -> {
                     if (event.getClickCount() == 1 && !row.isEmpty()) {
                         addNewRowOnClick(row);
@@ -142,12 +212,66 @@ public class DB_GUI_Controller implements Initializable {
             });
 
             enableEditingWithinRow();
+            searchDebounce.setOnFinished(event -> runSearch(searchField.getText()));
+            searchField.textProperty().addListener((obs, oldText, newText) -> searchDebounce.playFromStart());
+            rosterSync.setCycleCount(Animation.INDEFINITE);
+            rosterSync.play();
+            writeBehind.setListener(new WriteBehindBuffer.Listener() {
+                @Override
+                public void flushed(List<Student> students) {
+                    Platform.runLater(() -> {
+                        pendingRows.removeAll(students);
+                        tv.refresh();
+                    });
+                }
+
+                @Override
+                public void rejected(Student student, String reason) {
+                    Platform.runLater(() -> {
+                        markPending(student, false);
+                        showAlert("Could not save the change: " + reason);
+                        data.refresh();
+                    });
+                }
+            });
+            // Changes left from an earlier offline session go out with the first roster sync
+            showJournalStatus();
 
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static EditJournal openJournal(String course) {
+        try {
+            return EditJournal.forCourse(course);
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private int journaledChanges() {
+        return journal == null ? 0 : journal.getPendingCount();
+    }
+
+    // Tells the user that changes are only saved locally for now
+    private void showJournalStatus() {
+        int waiting = journaledChanges();
+        if (waiting > 0) {
+            setStatusMessage("Server unreachable: " + waiting + " change(s) saved on this computer, they will be sent when it is back");
+        }
+    }
+
+    // Rows added while offline have no id until the journal is replayed, so they cannot be edited yet
+    private boolean isSaved(Student student) {
+        if (student.getId() == null) {
+            showAlert("This student has not reached the server yet. Try again once the offline changes are sent.");
+            return false;
+        }
+        return true;
+    }
+
     @FXML
     protected void addNewRecord() {
         if (validateForm()) {
@@ -159,13 +283,33 @@ public class DB_GUI_Controller implements Initializable {
                     email.getText(),
                     year.getText()
             );
-            cnUtil.insertUser(p);
-            // Retrieve ID after insertion
-            cnUtil.retrieveId(p);
-            p.setId(cnUtil.retrieveId(p));
+            if (cnUtil.getCachedByEmail(p.getEmail()) != null) {
+                showAlert("A student with this email is already on the roster.");
+                return;
+            }
+            // Show the row right away as pending; the generated id comes back from the INSERT itself
             data.add(p);
+            markPending(p, true);
             clearForm();
-            setStatusMessage("New Record Successfully Added");
+            asyncDb.insertUser(p).whenComplete((id, error) -> {
+                markPending(p, false);
+                int index = indexNear(data, p, data.size() - 1);
+                if (error != null) {
+                    if (index >= 0) {
+                        data.remove(index);
+                    }
+                    showAlert("Could not add the record: " + AsyncDbConnectivityClass.describe(error));
+                } else if (id == null) {
+                    // Journaled; stays greyed out until the server has it
+                    markPending(p, true);
+                    showJournalStatus();
+                } else {
+                    if (index >= 0) {
+                        data.set(index, p);
+                    }
+                    setStatusMessage("New Record Successfully Added");
+                }
+            });
         }
     }
 
@@ -181,17 +325,17 @@ public class DB_GUI_Controller implements Initializable {
             return false;
         }
 
-        if (!first_name.getText().matches("^[A-Za-z]{2,25}$")) {
+        if (!StudentValidator.isValidName(first_name.getText())) {
             showAlert("Invalid first name. It should contain 2 to 25 alphabetical characters.");
             return false;
         }
 
-        if (!last_name.getText().matches("^[A-Za-z]{2,25}$")) {
+        if (!StudentValidator.isValidName(last_name.getText())) {
             showAlert("Invalid last name. It should contain 2 to 25 alphabetical characters.");
             return false;
         }
 
-        if (!email.getText().endsWith("@farmingdale.edu")) {
+        if (!StudentValidator.isValidEmail(email.getText())) {
             showAlert("Invalid email. It should end with @farmingdale.edu.");
             return false;
         }
@@ -216,6 +360,7 @@ public class DB_GUI_Controller implements Initializable {
     private void addNewRowOnClick(TableRow<Student> row) {
         if (row.isEmpty()) {
             // The row is empty, add a new record
+            tv.getSelectionModel().clearSelection();
             clearForm(); // Clear the form before adding a new record
             isEditDisabled.set(true);
             isDeleteDisabled.set(true);
@@ -235,7 +380,9 @@ public class DB_GUI_Controller implements Initializable {
     private void enableEditingWithinRow() {
         tv.setEditable(true);
 
-        tv_id.setCellFactory(TextFieldTableCell.forTableColumn(new IntegerStringConverter()));
+        // The id is the row's key on the server and in the write-behind buffer; the cell binds to
+        // the writable idProperty(), so an edit here would rename the row locally
+        tv_id.setEditable(false);
 
         tv_fn.setCellFactory(TextFieldTableCell.forTableColumn());
         tv_fn.setOnEditCommit(this::updateCell);
@@ -251,174 +398,233 @@ public class DB_GUI_Controller implements Initializable {
     }
 
     private void updateCell(TableColumn.CellEditEvent<Student, String> event) {
-        Student student = tv.getSelectionModel().getSelectedItem();
-        if (student != null) {
+        Student student = event.getRowValue();
+        if (student != null && student != PagedStudentList.LOADING) {
+            if (!isSaved(student)) {
+                tv.refresh();
+                return;
+            }
             // Update the corresponding property based on the column
+            StudentColumn column;
             if (event.getTableColumn() == tv_fn) {
-                student.setFirstName(event.getNewValue());
+                column = StudentColumn.FIRST_NAME;
             } else if (event.getTableColumn() == tv_ln) {
-                student.setLastName(event.getNewValue());
-            }  else if (event.getTableColumn() == tv_major) {
-                student.setMajor(event.getNewValue());
+                column = StudentColumn.LAST_NAME;
+            } else if (event.getTableColumn() == tv_major) {
+                column = StudentColumn.MAJOR;
             } else if (event.getTableColumn() == tv_email) {
-                student.setEmail(event.getNewValue());
+                column = StudentColumn.EMAIL;
+            } else if (event.getTableColumn() == tv_year) {
+                column = StudentColumn.YEAR;
+            } else {
+                return;
             }
+            column.set(student, event.getNewValue());
 
-            // Save changes to the database
-            cnUtil.editUser(student.getId(), student);
-
-            // You may need to adjust your data model or update the database accordingly
-            // For simplicity, assume the Person class has appropriate setters
-            // and update the corresponding property based on the edited column
+            // Only the changed column is saved, batched with other edits by the write-behind buffer
+            markPending(student, true);
+            writeBehind.record(student, column);
         }
     }
 
 
     @FXML
     private void importCsv() {
+        startImport(false);
+    }
+
+    // Upserts by email, for importing a new enrollment file over the existing roster
+    @FXML
+    private void mergeCsv() {
+        startImport(true);
+    }
+
+    private void startImport(boolean merge) {
+        if (importTask != null && importTask.isRunning()) {
+            showAlert("An import is already running.");
+            return;
+        }
         FileChooser fileChooser = new FileChooser();
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv", "*.csv.gz"));
         File file = fileChooser.showOpenDialog(null);
 
         if (file != null) {
-            try (CSVReader reader = new CSVReader(new FileReader(file))) {
-                List<Student> importedData = new ArrayList<>();
-
-                // Read CSV header (if present)
-                String[] header = reader.readNext();
-
-                // Assuming CSV format: ID,FirstName,LastName,Year,Major,Email
-                if (header != null && header.length == 6) {
-                    String[] nextLine;
-                    while ((nextLine = reader.readNext()) != null) {
-                        Student student = new Student(
-                                null,  // You can set the ID to null, and it will be generated automatically
-                                nextLine[1],
-                                nextLine[2],
-                                nextLine[3],
-                                nextLine[4],
-                                nextLine[5]);
-                        importedData.add(student);
-                    }
-
-                    // Update TableView with imported data
-                    data.clear();
-                    data.addAll(importedData);
-                    setStatusMessage("CSV Import Successful");
+            CsvImportTask task = new CsvImportTask(file, cnUtil, merge);
+            importTask = task;
+            showProgress(task);
+            cancelImportItem.setDisable(false);
+            task.messageProperty().addListener((obs, oldMessage, newMessage) -> statusLabel.setText(newMessage));
+
+            task.setOnSucceeded(event -> {
+                finishImport();
+                BulkInsertResult result = task.getValue();
+                if (merge) {
+                    setStatusMessage("CSV Merge: " + result.getInserted() + " added, " + result.getUpdated() + " updated, "
+                            + result.getUnchanged() + " unchanged, " + result.getFailed() + " rejected");
                 } else {
-                    showAlert("Invalid CSV file format. Please make sure the file has the correct header.");
+                    setStatusMessage("CSV Import: " + result.getInserted() + " added, " + result.getFailed() + " rejected");
+                }
+                if (result.getFailed() > 0) {
+                    showImportFailures(result);
                 }
+            });
+            task.setOnCancelled(event -> {
+                finishImport();
+                BulkInsertResult partial = task.getPartialResult();
+                setStatusMessage("CSV Import cancelled after " + (partial.getInserted() + partial.getUpdated()) + " students");
+            });
+            task.setOnFailed(event -> {
+                finishImport();
+                task.getException().printStackTrace();
+                showAlert("Error importing CSV file: " + task.getException().getMessage());
+            });
 
-            } catch (IOException | NumberFormatException e) {
-                e.printStackTrace();
-                showAlert("Error importing CSV file.");
-            } catch (CsvValidationException e) {
-                throw new RuntimeException(e);
-            }
+            Thread thread = new Thread(task, "csv-import");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @FXML
+    private void cancelImport() {
+        if (importTask != null) {
+            importTask.cancel();
+        }
+    }
+
+    // Rows are committed chunk by chunk, so reload whatever made it into the database
+    private void finishImport() {
+        cancelImportItem.setDisable(true);
+        importTask = null;
+        hideProgress();
+        data.refresh();
+    }
+
+
+    private void showImportFailures(BulkInsertResult result) {
+        StringBuilder message = new StringBuilder(result.getFailed() + " rows were not imported:");
+        List<BulkInsertResult.RowFailure> failures = result.getFailures();
+        for (int i = 0; i < Math.min(5, failures.size()); i++) {
+            message.append("\n").append(failures.get(i));
+        }
+        if (failures.size() > 5) {
+            message.append("\n...");
         }
+        failures.forEach(failure -> MyLogger.makeLog("Import rejected {}", failure.toString()));
+        showAlert(message.toString());
     }
 
 
     @FXML
     private void exportCsv() {
+        if (exportTask != null && exportTask.isRunning()) {
+            showAlert("An export is already running.");
+            return;
+        }
         FileChooser fileChooser = new FileChooser();
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        FileChooser.ExtensionFilter gzipFilter = new FileChooser.ExtensionFilter("Gzipped CSV Files", "*.csv.gz");
+        fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV Files", "*.csv"), gzipFilter);
         File file = fileChooser.showSaveDialog(null);
 
         if (file != null) {
-            try (CSVWriter writer = new CSVWriter(new FileWriter(file))) {
-                // Write CSV header
-                String[] header = {"ID", "FirstName", "LastName", "Year", "Major", "Email"};
-                writer.writeNext(header);
-
-                // Write data to CSV
-                for (Student student : data) {
-                    String[] rowData = {
-                            String.valueOf(student.getId()),
-                            student.getFirstName(),
-                            student.getLastName(),
-                            student.getMajor(),
-                            student.getEmail()
-                    };
-                    writer.writeNext(rowData);
-                }
-
-                setStatusMessage("CSV Export Successful");
-
-            } catch (IOException e) {
-                e.printStackTrace();
-                showAlert("Error exporting CSV file.");
+            if (fileChooser.getSelectedExtensionFilter() == gzipFilter && !file.getName().endsWith(".gz")) {
+                file = new File(file.getParentFile(), file.getName() + ".gz");
             }
+            CsvExportTask task = new CsvExportTask(file, cnUtil);
+            runExport(task, "csv-export", () -> setStatusMessage("CSV Export Successful: " + task.getValue() + " students"));
         }
-    }@FXML
+    }
+
+    @FXML
     private void exportPdf() {
+        if (exportTask != null && exportTask.isRunning()) {
+            showAlert("An export is already running.");
+            return;
+        }
         FileChooser fileChooser = new FileChooser();
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF Files", "*.pdf"));
         File file = fileChooser.showSaveDialog(null);
 
         if (file != null) {
-            try {
-                generatePdf(file);
-                setStatusMessage("PDF Export Successful");
-            } catch (IOException e) {
-                e.printStackTrace();
-                showAlert("Error exporting PDF file.");
-            }
+            PdfExportTask task = new PdfExportTask(file, cnUtil.uncached(), cnUtil.getCourse());
+            runExport(task, "pdf-export", () -> setStatusMessage("PDF Export Successful: " + task.getValue() + " students"));
         }
     }
 
-
-    private void generatePdf(File file) throws IOException {
-        PDDocument document = new PDDocument();
-        PDPage page = new PDPage();
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(50, 750);
-            contentStream.showText("Course: " + DbConnectivityClass.getDbName()); // Display course name
-            contentStream.newLineAtOffset(0, -20);
-            contentStream.showText("Student List for " + DbConnectivityClass.getDbName());
-            contentStream.newLineAtOffset(0, -15);
-            contentStream.showText("Total Students: " + data.size());
-            contentStream.newLineAtOffset(0, -15);
-            contentStream.showText("--------------------------------------------------");
-
-
-            // Define column headers
-            String[] headers = {"ID", "FirstName", "LastName", "Year", "Major", "Email"};
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 10);
-            addRowToPDF(contentStream, headers);
-
-            // Reset font for student data
-            contentStream.setFont(PDType1Font.HELVETICA, 10);
-
-            // Add student data
-            for (Student student : data) {
-                String[] studentData = {
-                        String.valueOf(student.getId()),
-                        student.getFirstName(),
-                        student.getLastName(),
-                        student.getYear(),
-                        student.getMajor(),
-                        student.getEmail()
-                };
-                addRowToPDF(contentStream, studentData);
+    // Writes a CSV and PDF report for every course on the server, plus a combined summary.csv
+    @FXML
+    private void generateTermReports() {
+        if (exportTask != null && exportTask.isRunning()) {
+            showAlert("An export is already running.");
+            return;
+        }
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Folder for term reports");
+        File directory = directoryChooser.showDialog(null);
+        if (directory == null) {
+            return;
+        }
+        AsyncDbConnectivityClass.submit(cnUtil::listCourses).whenComplete((courses, error) -> {
+            if (error != null) {
+                showAlert("Could not list courses: " + AsyncDbConnectivityClass.describe(error));
+                return;
             }
+            CourseReportJob job = new CourseReportJob(courses, directory);
+            runExport(job, "course-reports", () -> {
+                long failed = job.getValue().stream().filter(report -> report.getError() != null).count();
+                setStatusMessage("Term reports written for " + (courses.size() - failed) + " courses, " + failed + " failed");
+            });
+        });
+    }
 
-            contentStream.endText();
-        }
+    private void runExport(Task<?> task, String threadName, Runnable onSucceeded) {
+        exportTask = task;
+        exportCsvItem.setDisable(true);
+        exportPdfItem.setDisable(true);
+        termReportsItem.setDisable(true);
+        showProgress(task);
+        task.messageProperty().addListener((obs, oldMessage, newMessage) -> statusLabel.setText(newMessage));
+
+        task.setOnSucceeded(event -> {
+            finishExport();
+            onSucceeded.run();
+        });
+        task.setOnCancelled(event -> finishExport());
+        task.setOnFailed(event -> {
+            finishExport();
+            task.getException().printStackTrace();
+            showAlert("Error exporting file: " + task.getException().getMessage());
+        });
 
-        document.save(file);
-        document.close();
+        Thread thread = new Thread(task, threadName);
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    private void addRowToPDF(PDPageContentStream contentStream, String[] data) throws IOException {
-        contentStream.newLineAtOffset(0, -15);
-        contentStream.showText(String.join(" | ", data));
+    private void finishExport() {
+        exportCsvItem.setDisable(false);
+        exportPdfItem.setDisable(false);
+        termReportsItem.setDisable(false);
+        exportTask = null;
+        hideProgress();
     }
 
+    // The status bar progress follows whichever background task started last
+    private void showProgress(Task<?> task) {
+        importProgress.progressProperty().unbind();
+        importProgress.progressProperty().bind(task.progressProperty());
+        importProgress.setVisible(true);
+    }
+
+    private void hideProgress() {
+        Task<?> running = importTask != null ? importTask : exportTask;
+        importProgress.progressProperty().unbind();
+        if (running != null) {
+            importProgress.progressProperty().bind(running.progressProperty());
+        } else {
+            importProgress.setVisible(false);
+        }
+    }
 
 
     private Map<String, Integer> countStudentsByMajor() {
@@ -455,32 +661,60 @@ public class DB_GUI_Controller implements Initializable {
         year.setText("");
     }
 
+    // Closes every course tab, which brings back the login screen
     @FXML
     protected void logOut(ActionEvent actionEvent) {
-        DbConnectivityClass.setDbName(null);
-        try {
-            Parent root = FXMLLoader.load(getClass().getResource("/view/login.fxml"));
-            Scene scene = new Scene(root, 900, 600);
-            scene.getStylesheets().add(getClass().getResource("/css/lightTheme.css").getFile());
-            Stage window = (Stage) menuBar.getScene().getWindow();
-            window.setScene(scene);
-            window.show();
-        } catch (Exception e) {
-            e.printStackTrace();
+        tabs.closeAll();
+    }
+
+    @FXML
+    protected void openCourse() {
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Open Course");
+        dialog.setHeaderText("Course ID to open in a new tab, e.g. \"CSC311\"");
+        dialog.showAndWait()
+                .map(course -> course.trim().toUpperCase())
+                .filter(course -> !course.isEmpty())
+                .ifPresent(course -> {
+                    try {
+                        tabs.open(course);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        showAlert("Could not open " + course + ": " + e.getMessage());
+                    }
+                });
+    }
+
+    // Called by CourseTabs when this course's tab goes away. Buffered cell edits are written out and
+    // running work on the course is cancelled before the session is released.
+    void closeSession() {
+        rosterSync.stop();
+        searchDebounce.stop();
+        if (importTask != null) {
+            importTask.cancel();
+        }
+        if (exportTask != null && !(exportTask instanceof CourseReportJob)) {
+            exportTask.cancel();
         }
+        writeBehind.close();
+        CourseRegistry.release(cnUtil.getCourse());
     }
 
     @FXML
     protected void closeApplication() {
+        WriteBehindBuffer.closeAll();
+        CourseRegistry.closeAll();
+        DbConnectivityClass.shutdownPools();
         System.exit(0);
     }
 
 
     @FXML
     protected void editRecord() {
-        Student p = tv.getSelectionModel().getSelectedItem();
-        if (p != null) {
-            int index = data.indexOf(p);
+        int index = currentRow();
+        ObservableList<Student> rows = tv.getItems();
+        Student p = index < 0 ? null : rows.get(index);
+        if (p != null && p != PagedStudentList.LOADING && isSaved(p)) {
 
             Student p2 = new Student(
                     p.getId(),
@@ -491,10 +725,26 @@ public class DB_GUI_Controller implements Initializable {
                     year.getText()
             );
 
-            cnUtil.editUser(p.getId(), p2);
-            data.remove(p);
-            data.add(index, p2);
+            // The form rewrites every column, so buffered cell edits for this row are superseded
+            writeBehind.discard(p.getId());
+            rows.set(index, p2);
+            markPending(p2, true);
             tv.getSelectionModel().select(index);
+            asyncDb.editUser(p.getId(), p2).whenComplete((ignored, error) -> {
+                markPending(p2, false);
+                if (error != null) {
+                    int current = indexNear(rows, p2, index);
+                    if (current >= 0) {
+                        rows.set(current, p);
+                    }
+                    showAlert("Could not save the change: " + AsyncDbConnectivityClass.describe(error));
+                    return;
+                }
+                if (rows != data) {
+                    rosterChangedDuringSearch = true;
+                }
+                showJournalStatus();
+            });
         }
     }
 
@@ -503,12 +753,266 @@ public class DB_GUI_Controller implements Initializable {
 
     @FXML
     protected void deleteRecord() {
-        Student p = tv.getSelectionModel().getSelectedItem();
-        int index = data.indexOf(p);
-        if(index<0){return;}
-        cnUtil.deleteRecord(p);
-        data.remove(index);
-        tv.getSelectionModel().select(index);
+        List<Student> selected = selectedStudents();
+        if (selected.size() > 1) {
+            deleteRecords(selected);
+            return;
+        }
+        if (selected.isEmpty()) {
+            return;
+        }
+        Student p = selected.get(0);
+        ObservableList<Student> rows = tv.getItems();
+        int index = selectedIndexOf(p);
+        if(index<0 || !isSaved(p)){return;}
+        writeBehind.discard(p.getId());
+        markPending(p, true);
+        asyncDb.deleteRecord(p).whenComplete((ignored, error) -> {
+            markPending(p, false);
+            if (error != null) {
+                showAlert("Could not delete the record: " + AsyncDbConnectivityClass.describe(error));
+                return;
+            }
+            int current = indexNear(rows, p, index);
+            if (current >= 0) {
+                rows.remove(current);
+                tv.getSelectionModel().select(current);
+            }
+            if (rows != data) {
+                rosterChangedDuringSearch = true;
+            }
+            showJournalStatus();
+        });
+    }
+
+    // The row the form and the single-row actions work on: the focused row, i.e. the one last
+    // clicked or moved to, if it is selected. With several rows selected getSelectedItem() is just
+    // the last one selected.
+    private int currentRow() {
+        int index = tv.getFocusModel().getFocusedIndex();
+        return index >= 0 && tv.getSelectionModel().isSelected(index) ? index : -1;
+    }
+
+    private int selectedIndexOf(Student student) {
+        for (int index : tv.getSelectionModel().getSelectedIndices()) {
+            if (tv.getItems().get(index) == student) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    // Selected rows that are loaded, in table order
+    private List<Student> selectedStudents() {
+        List<Student> selected = new ArrayList<>();
+        for (Student student : tv.getSelectionModel().getSelectedItems()) {
+            if (student != null && student != PagedStudentList.LOADING && student.getId() != null) {
+                selected.add(student);
+            }
+        }
+        return selected;
+    }
+
+    // One DELETE for all of them; the rows leave the table in a single list change once it commits
+    private void deleteRecords(List<Student> selected) {
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Delete " + selected.size() + " students?");
+        confirm.setHeaderText(null);
+        if (confirm.showAndWait().filter(ButtonType.OK::equals).isEmpty()) {
+            return;
+        }
+        ObservableList<Student> rows = tv.getItems();
+        List<Integer> ids = new ArrayList<>(selected.size());
+        for (Student student : selected) {
+            writeBehind.discard(student.getId());
+            pendingRows.add(student);
+            ids.add(student.getId());
+        }
+        tv.refresh();
+        asyncDb.deleteRecords(ids).whenComplete((deleted, error) -> {
+            pendingRows.removeAll(selected);
+            if (error != null) {
+                tv.refresh();
+                showAlert("Could not delete the records: " + AsyncDbConnectivityClass.describe(error));
+                return;
+            }
+            tv.getSelectionModel().clearSelection();
+            rows.removeAll(selected);
+            if (rows != data) {
+                rosterChangedDuringSearch = true;
+            }
+            setStatusMessage(deleted + " students deleted");
+            showJournalStatus();
+        });
+    }
+
+    @FXML
+    private void setMajorForSelected() {
+        List<Student> selected = selectedStudents();
+        if (selected.isEmpty()) {
+            return;
+        }
+        ChoiceDialog<Major> dialog = new ChoiceDialog<>(Major.values()[0], Major.values());
+        dialog.setTitle("Set Major");
+        dialog.setHeaderText("New major for " + selected.size() + " students");
+        dialog.showAndWait().ifPresent(major -> updateColumn(selected, StudentColumn.MAJOR, major.getDisplayName()));
+    }
+
+    @FXML
+    private void setYearForSelected() {
+        List<Student> selected = selectedStudents();
+        if (selected.isEmpty()) {
+            return;
+        }
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Set Year");
+        dialog.setHeaderText("New year for " + selected.size() + " students");
+        dialog.showAndWait()
+                .map(String::trim)
+                .filter(year -> !year.isEmpty())
+                .ifPresent(year -> updateColumn(selected, StudentColumn.YEAR, year));
+    }
+
+    // Shows the new value right away and writes it with one UPDATE; the rows are put back if that fails
+    private void updateColumn(List<Student> selected, StudentColumn column, String value) {
+        Map<Student, String> previous = new IdentityHashMap<>();
+        List<Integer> ids = new ArrayList<>(selected.size());
+        for (Student student : selected) {
+            previous.put(student, column.get(student));
+            column.set(student, value);
+            pendingRows.add(student);
+            ids.add(student.getId());
+        }
+        tv.refresh();
+        asyncDb.updateColumn(column, value, ids).whenComplete((updated, error) -> {
+            pendingRows.removeAll(selected);
+            if (error != null) {
+                previous.forEach(column::set);
+                showAlert("Could not save the change: " + AsyncDbConnectivityClass.describe(error));
+            } else {
+                setStatusMessage(updated + " students updated");
+                showJournalStatus();
+            }
+            tv.refresh();
+        });
+    }
+
+    // Runs once typing has paused; results from older keystrokes are dropped when they arrive late
+    private void runSearch(String term) {
+        int generation = ++searchGeneration;
+        if (term == null || term.isBlank()) {
+            showRoster();
+            return;
+        }
+        asyncDb.searchStudents(term, SEARCH_LIMIT).whenComplete((results, error) -> {
+            if (generation != searchGeneration) {
+                return;
+            }
+            if (error != null) {
+                setStatusMessage("Search failed: " + AsyncDbConnectivityClass.describe(error));
+                return;
+            }
+            tv.setItems(FXCollections.observableArrayList(results));
+            setStatusMessage(results.size() >= SEARCH_LIMIT
+                    ? "Showing the first " + SEARCH_LIMIT + " matches"
+                    : results.size() + " matches");
+        });
+    }
+
+    @FXML
+    protected void syncRoster() {
+        if (tv.getItems() != data) {
+            rosterChangedDuringSearch = true;
+            return;
+        }
+        if (importTask != null && importTask.isRunning()) {
+            return;
+        }
+        // Flush buffered cell edits and replay offline changes first so the server copy does not
+        // overwrite them
+        AsyncDbConnectivityClass.submit(() -> {
+            writeBehind.flush();
+            return null;
+        }).thenCompose(ignored -> replayJournal()).thenCompose(ignored -> data.syncChanges()).whenComplete((ignored, error) -> {
+            if (error == null) {
+                updateSnapshot();
+                return;
+            }
+            if (journaledChanges() > 0 || EditJournal.isUnreachable(error)) {
+                showJournalStatus();
+            } else {
+                setStatusMessage("Refresh failed: " + AsyncDbConnectivityClass.describe(error));
+            }
+        });
+    }
+
+    // Brings the on-disk snapshot the next session starts from up to date, in the background.
+    private void updateSnapshot() {
+        long now = System.currentTimeMillis();
+        if (now - snapshotWrittenAt < SNAPSHOT_INTERVAL_MILLIS) {
+            return;
+        }
+        snapshotWrittenAt = now;
+        AsyncDbConnectivityClass.submit("updateSnapshot", () -> {
+            RosterSnapshot.update(cnUtil);
+            return null;
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                MyLogger.makeLog("Roster snapshot not updated: {}", AsyncDbConnectivityClass.describe(error));
+            }
+        });
+    }
+
+    // Sends changes journaled while offline. Rows added offline only get their ids from the
+    // server, so once any change went through the roster is reloaded.
+    private CompletableFuture<Void> replayJournal() {
+        if (journaledChanges() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return asyncDb.replayJournal().thenCompose(replay -> {
+            if (!replay.getRejected().isEmpty()) {
+                showAlert("The server refused " + replay.getRejected().size() + " change(s) made while offline:\n"
+                        + String.join("\n", replay.getRejected().subList(0, Math.min(10, replay.getRejected().size()))));
+            }
+            if (replay.getApplied() == 0) {
+                showJournalStatus();
+                return CompletableFuture.completedFuture(null);
+            }
+            pendingRows.removeIf(student -> student.getId() == null);
+            setStatusMessage(replay.getApplied() + " offline change(s) sent to the server");
+            return data.refresh();
+        });
+    }
+
+    private void showRoster() {
+        if (tv.getItems() != data) {
+            tv.setItems(data);
+            if (rosterChangedDuringSearch) {
+                rosterChangedDuringSearch = false;
+                data.syncChanges();
+            }
+        }
+    }
+
+    private void markPending(Student student, boolean pending) {
+        if (pending) {
+            pendingRows.add(student);
+        } else {
+            pendingRows.remove(student);
+        }
+        tv.refresh();
+    }
+
+    // Finds a row that may have shifted a little since an operation on it started, without
+    // scanning (and so loading) the whole paged list.
+    private int indexNear(List<Student> rows, Student student, int hint) {
+        for (int distance = 0; distance <= 64; distance++) {
+            for (int candidate : new int[]{hint - distance, hint + distance}) {
+                if (candidate >= 0 && candidate < rows.size() && rows.get(candidate) == student) {
+                    return candidate;
+                }
+            }
+        }
+        return -1;
     }
 
     @FXML
@@ -526,7 +1030,11 @@ public class DB_GUI_Controller implements Initializable {
 
     @FXML
     protected void selectedItemTV(MouseEvent mouseEvent) {
-        Student p = tv.getSelectionModel().getSelectedItem();
+        int index = currentRow();
+        Student p = index < 0 ? null : tv.getItems().get(index);
+        if (p == null || p == PagedStudentList.LOADING) {
+            return;
+        }
         first_name.setText(p.getFirstName());
         last_name.setText(p.getLastName());
         major.setText(p.getMajor());
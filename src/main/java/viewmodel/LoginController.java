@@ -1,5 +1,6 @@
 package viewmodel;
 
+import dao.CourseRegistry;
 import dao.DbConnectivityClass;
 import javafx.animation.FadeTransition;
 import javafx.event.ActionEvent;
@@ -26,26 +27,36 @@ public class LoginController {
     @FXML
     private GridPane rootpane;
     public void initialize() {
-        rootpane.setBackground(new Background(
-                        createImage("https://img.freepik.com/free-vector/watercolor-back-school-background-with-white-space_52683-41450.jpg?size=626&ext=jpg&ga=GA1.1.1546980028.1702425600&semt=sph"),
-                        null,
-                        null,
-                        null,
-                        null,
-                        null
-                )
-        );
+        // A local copy of the image, loaded off the FX thread; the form is usable before it arrives
+        StartupPipeline.loginBackground().thenAccept(image -> {
+            if (image != null) {
+                rootpane.setBackground(new Background(
+                                createImage(image),
+                                null,
+                                null,
+                                null,
+                                null,
+                                null
+                        )
+                );
+            }
+        });
 
 
         rootpane.setOpacity(0);
         FadeTransition fadeOut2 = new FadeTransition(Duration.seconds(10), rootpane);
         fadeOut2.setFromValue(0);
         fadeOut2.setToValue(1);
-        fadeOut2.play();
+        // The view may be loaded in the background during the splash screen, so fade in once it is shown
+        rootpane.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null && oldScene == null) {
+                fadeOut2.play();
+            }
+        });
     }
-    private static BackgroundImage createImage(String url) {
+    private static BackgroundImage createImage(Image image) {
         return new BackgroundImage(
-                new Image(url),
+                image,
                 BackgroundRepeat.REPEAT, BackgroundRepeat.NO_REPEAT,
                 new BackgroundPosition(Side.LEFT, 0, true, Side.BOTTOM, 0, true),
                 new BackgroundSize(BackgroundSize.AUTO, BackgroundSize.AUTO, true, true, false, true));
@@ -56,15 +67,27 @@ public class LoginController {
             erroLabel.setText("Please Enter a Course ID ex. \"CSC311\"");
             return;
         }
-        DbConnectivityClass.setDbName(className.getText().toUpperCase());
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/view/db_interface_gui.fxml"));
-            Scene scene = new Scene(root, 900, 600);
+            String course = className.getText().toUpperCase();
+            CourseTabs tabs = new CourseTabs();
+            tabs.open(course);
+            releaseWarmedCourse(course);
+            StartupPipeline.rememberCourse(course);
+            Scene scene = new Scene(tabs.getRoot(), CourseTabs.WIDTH, CourseTabs.HEIGHT);
             scene.getStylesheets().add(getClass().getResource("/css/lightTheme.css").toExternalForm());
             Stage window = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
             window.setScene(scene);
             window.show();
+            StartupPipeline.rosterShown();
         } catch (Exception e) {
             e.printStackTrace();
         }
+    }
+
+    // The startup warm-up opened a pool for last time's course; drop it if another one was chosen
+    private static void releaseWarmedCourse(String course) {
+        String warmed = StartupPipeline.lastCourse();
+        if (warmed != null && !warmed.equals(course) && !CourseRegistry.isOpen(warmed)) {
+            DbConnectivityClass.closePool(warmed);
+        }
     }}
\ No newline at end of file
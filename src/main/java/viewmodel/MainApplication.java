@@ -1,6 +1,9 @@
 package viewmodel;
 
+import dao.CourseRegistry;
+import dao.DaoMetrics;
 import dao.DbConnectivityClass;
+import dao.WriteBehindBuffer;
 import javafx.animation.FadeTransition;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -9,52 +12,79 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import service.MyLogger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class MainApplication extends Application {
 
     private static Scene scene;
-    private static DbConnectivityClass cnUtil;
     private Stage primaryStage;
 
     public static void main(String[] args) {
-        cnUtil = new DbConnectivityClass();
         launch(args);
 
     }
 
     public void start(Stage primaryStage) {
+        // The login view and everything behind it load in the background while the splash shows
+        CompletableFuture<Parent> loginView = new StartupPipeline().start();
         Image icon = new Image(getClass().getResourceAsStream("/images/icon.png"));
         this.primaryStage = primaryStage;
         this.primaryStage.setResizable(false);
         primaryStage.getIcons().add(icon);
         primaryStage.setTitle("Course Roster Manager");
-        showScene1();
+        showScene1(loginView);
     }
 
-    private void showScene1() {
+    private void showScene1(CompletableFuture<Parent> loginView) {
         try {
             Parent root = FXMLLoader.load(getClass().getResource("/view/splashscreen.fxml"));
             Scene scene = new Scene(root, 900, 600);
             scene.getStylesheets().add(getClass().getResource("/css/lightTheme.css").toExternalForm());
             primaryStage.setScene(scene);
             primaryStage.show();
-            changeScene();
+            changeScene(loginView);
         } catch (Exception e) {
             e.printStackTrace();
         }
 
     }
 
-    public void changeScene() {
+    @Override
+    public void stop() {
+        // Window closed: write out buffered edits before the pools go away
+        WriteBehindBuffer.closeAll();
+        CourseRegistry.closeAll();
+        DbConnectivityClass.shutdownPools();
+        MyLogger.makeLog(DaoMetrics::summary);
+        MyLogger.flush(2, TimeUnit.SECONDS);
+    }
+
+    // Switches to the login view once the splash has faded out and the view has loaded, whichever
+    // comes last.
+    public void changeScene(CompletableFuture<Parent> loginView) {
         try {
-            Parent newRoot = FXMLLoader.load(getClass().getResource("/view/login.fxml").toURI().toURL());
             Scene currentScene = primaryStage.getScene();
             Parent currentRoot = currentScene.getRoot();
             currentScene.getStylesheets().add(getClass().getResource("/css/lightTheme.css").toExternalForm());
             FadeTransition fadeOut = new FadeTransition(Duration.seconds(3), currentRoot);
             fadeOut.setFromValue(1);
             fadeOut.setToValue(0);
-            fadeOut.setOnFinished(e -> {
+            CompletableFuture<Void> faded = new CompletableFuture<>();
+            fadeOut.setOnFinished(e -> faded.complete(null));
+            loginView.thenCombine(faded, (newRoot, ignored) -> newRoot).whenComplete((newRoot, error) -> {
+                if (error != null) {
+                    // Load it here instead, as startup did before
+                    error.printStackTrace();
+                    try {
+                        newRoot = FXMLLoader.load(getClass().getResource("/view/login.fxml").toURI().toURL());
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        return;
+                    }
+                }
                 Scene newScene = new Scene(newRoot, 900, 600);
                 primaryStage.setScene(newScene);
                 primaryStage.show();
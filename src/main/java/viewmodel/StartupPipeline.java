@@ -0,0 +1,160 @@
+package viewmodel;
+
+import dao.DaoMetrics;
+import dao.DbConnectivityClass;
+import dao.OperationStats;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.image.Image;
+import service.MyLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.prefs.Preferences;
+
+// Startup work that used to run one step after another on the FX thread now runs side by side
+// while the splash screen shows: the login view is loaded, the login background comes from a local
+// copy (downloaded once), and the course used last time gets its connection pool and schema check
+// done before anyone logs in. The login view appears once both it and the splash fade are done,
+// so startup takes as long as the slowest of them rather than their sum. The database warm-up
+// never holds up the UI; opening the course just finds it done or joins it. Each phase is
+// recorded as "startup.<phase>" in DaoMetrics and logged in one summary line.
+public class StartupPipeline {
+    static final String BACKGROUND_URL = "https://img.freepik.com/free-vector/watercolor-back-school-background-with-white-space_52683-41450.jpg?size=626&ext=jpg&ga=GA1.1.1546980028.1702425600&semt=sph";
+    static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("roster.cache.dir",
+            Paths.get(System.getProperty("user.home"), ".roster", "cache").toString()));
+    private static final String LAST_COURSE = "lastCourse";
+
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("roster-startup-", 0).factory());
+    private static final Map<String, Long> TIMINGS = new ConcurrentSkipListMap<>();
+    private static final AtomicBoolean ROSTER_SHOWN = new AtomicBoolean();
+    private static volatile CompletableFuture<Image> background;
+
+    private final long start = System.nanoTime();
+
+    // Starts every phase and completes, on the FX thread, with the loaded login view.
+    public CompletableFuture<Parent> start() {
+        CompletableFuture<Parent> loginView = phase("loginView",
+                () -> FXMLLoader.<Parent>load(StartupPipeline.class.getResource("/view/login.fxml")));
+        String course = lastCourse();
+        CompletableFuture<Void> warmUp = course == null
+                ? CompletableFuture.completedFuture(null)
+                : phase("courseWarmup", () -> warmUp(course));
+        CompletableFuture.allOf(loginView, loginBackground(), warmUp)
+                .whenComplete((ignored, error) -> MyLogger.makeLog(this::summary));
+        return loginView;
+    }
+
+    // The login background, read from the local copy, which is downloaded the first time. Shared by
+    // every login view; completes on the FX thread, with null if the image could not be had.
+    static CompletableFuture<Image> loginBackground() {
+        CompletableFuture<Image> image = background;
+        if (image == null) {
+            synchronized (StartupPipeline.class) {
+                if (background == null) {
+                    background = phase("backgroundImage", StartupPipeline::loadBackground)
+                            .exceptionally(error -> {
+                                MyLogger.makeLog("Login background not available: {}", error.getMessage());
+                                return null;
+                            });
+                }
+                image = background;
+            }
+        }
+        return image;
+    }
+
+    // Remembers the course for the next start's warm-up.
+    static void rememberCourse(String course) {
+        Preferences.userNodeForPackage(StartupPipeline.class).put(LAST_COURSE, course);
+    }
+
+    static String lastCourse() {
+        return Preferences.userNodeForPackage(StartupPipeline.class).get(LAST_COURSE, null);
+    }
+
+    // Called when a course tab is up; the first call records the time from JVM start to a usable roster.
+    static void rosterShown() {
+        if (ROSTER_SHOWN.compareAndSet(false, true)) {
+            long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            DaoMetrics.operation("startup.toRoster").record(millis * 1_000_000, 0);
+            MyLogger.makeLog("Roster usable {} ms after JVM start", millis);
+        }
+    }
+
+    private static Image loadBackground() throws IOException {
+        Path cached = CACHE_DIRECTORY.resolve("login-background.jpg");
+        if (!Files.isRegularFile(cached)) {
+            Files.createDirectories(CACHE_DIRECTORY);
+            Path temporary = Files.createTempFile(CACHE_DIRECTORY, "login-background", ".tmp");
+            try (InputStream in = URI.create(BACKGROUND_URL).toURL().openStream()) {
+                Files.copy(in, temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        Image image = new Image(cached.toUri().toString());
+        if (image.isError()) {
+            // A damaged copy is fetched again next time
+            Files.deleteIfExists(cached);
+            throw new IOException("Could not decode " + cached, image.getException());
+        }
+        return image;
+    }
+
+    // Opens the course's pool, i.e. the TCP/TLS handshake and login, and runs the schema check.
+    // The pool stays open for the course's session to pick up.
+    private static Void warmUp(String course) {
+        new DbConnectivityClass(course).connectToDatabase();
+        return null;
+    }
+
+    // Runs one phase on its own virtual thread, records how long it took and completes on the FX thread.
+    private static <T> CompletableFuture<T> phase(String name, Callable<T> work) {
+        OperationStats stats = DaoMetrics.operation("startup." + name);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long begin = System.nanoTime();
+        EXECUTOR.execute(() -> {
+            try {
+                T value = work.call();
+                long elapsed = System.nanoTime() - begin;
+                stats.record(elapsed, 0);
+                TIMINGS.put(name, elapsed);
+                Platform.runLater(() -> future.complete(value));
+            } catch (Throwable t) {
+                long elapsed = System.nanoTime() - begin;
+                stats.recordError(elapsed);
+                TIMINGS.put(name + " (failed)", elapsed);
+                Platform.runLater(() -> future.completeExceptionally(t));
+            }
+        });
+        return future;
+    }
+
+    private String summary() {
+        StringBuilder summary = new StringBuilder("Startup phases:");
+        long sum = 0;
+        for (Map.Entry<String, Long> timing : TIMINGS.entrySet()) {
+            summary.append(' ').append(timing.getKey()).append('=').append(timing.getValue() / 1_000_000).append("ms");
+            sum += timing.getValue();
+        }
+        return summary.append(", sum ").append(sum / 1_000_000).append("ms, wall ")
+                .append((System.nanoTime() - start) / 1_000_000).append("ms").toString();
+    }
+}
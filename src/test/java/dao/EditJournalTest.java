@@ -0,0 +1,182 @@
+package dao;
+
+import model.Student;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EditJournalTest {
+    private static final String COURSE = "JournalTest";
+
+    private Path path;
+
+    @BeforeEach
+    void startEmpty() throws IOException {
+        EditJournal.closeJournal(COURSE);
+        path = EditJournal.DIRECTORY.resolve(COURSE + ".journal");
+        Files.deleteIfExists(path);
+    }
+
+    @AfterEach
+    void closeJournal() throws IOException {
+        EditJournal.closeJournal(COURSE);
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    void tornTailIsCutOffOnOpen() throws IOException {
+        EditJournal journal = EditJournal.forCourse(COURSE);
+        journal.append(insert(1), insert(2));
+        journal.append(EditJournal.Entry.delete(List.of(7)));
+        EditJournal.closeJournal(COURSE);
+        long complete = Files.size(path);
+
+        // A record header promising 50 bytes, cut short by a crash
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 50, 1, 2, 3, 4, 5}));
+        }
+
+        assertEquals(3, EditJournal.forCourse(COURSE).getPendingCount());
+        assertEquals(complete, Files.size(path));
+    }
+
+    @Test
+    void recordWithBadChecksumIsDroppedOnOpen() throws IOException {
+        EditJournal journal = EditJournal.forCourse(COURSE);
+        journal.append(insert(1));
+        long first = Files.size(path);
+        journal.append(insert(2));
+        EditJournal.closeJournal(COURSE);
+
+        // Flip the last payload byte of the second record
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) ~last.get(0));
+            channel.write(last.rewind(), channel.size() - 1);
+        }
+
+        assertEquals(1, EditJournal.forCourse(COURSE).getPendingCount());
+        assertEquals(first, Files.size(path));
+    }
+
+    @Test
+    void replayResumesAfterTheLastCheckpoint() throws IOException {
+        EditJournal journal = EditJournal.forCourse(COURSE);
+        journal.append(insert(1), insert(2), insert(3));
+        journal.append(EditJournal.Entry.update(StudentColumn.MAJOR, "English", List.of(1, 2)));
+        journal.append(EditJournal.Entry.delete(List.of(3)));
+
+        FakeDao offline = new FakeDao();
+        offline.unreachable = true;
+        EditJournal.Replay replay = journal.replay(offline);
+        assertEquals(4, replay.getApplied());
+        assertEquals(1, replay.getRemaining());
+        assertEquals(3, offline.inserted.size());
+        assertEquals(2, offline.updated.size());
+
+        // A restart reads the checkpoint back and only the delete is left
+        EditJournal.closeJournal(COURSE);
+        journal = EditJournal.forCourse(COURSE);
+        assertEquals(1, journal.getPendingCount());
+
+        FakeDao online = new FakeDao();
+        replay = journal.replay(online);
+        assertEquals(1, replay.getApplied());
+        assertEquals(0, replay.getRemaining());
+        assertTrue(online.inserted.isEmpty());
+        assertTrue(online.updated.isEmpty());
+        assertEquals(List.of(3), online.deleted);
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    void insertThatFindsItsOwnRowCountsAsApplied() throws IOException {
+        EditJournal journal = EditJournal.forCourse(COURSE);
+        journal.append(insert(1), insert(2));
+
+        // Both rows went in on a replay that crashed before its checkpoint; student 2's email has
+        // since been taken by someone else
+        FakeDao dao = new FakeDao();
+        dao.stored.put(email(1), new Student(41, "First1", "Last1", "Biology", email(1), "Junior"));
+        dao.stored.put(email(2), new Student(42, "Someone", "Else", "English", email(2), "Senior"));
+        EditJournal.Replay replay = journal.replay(dao);
+
+        assertEquals(0, replay.getRemaining());
+        assertEquals(1, replay.getRejected().size());
+        assertTrue(replay.getRejected().get(0).contains(email(2)));
+    }
+
+    private static EditJournal.Entry insert(int n) {
+        return EditJournal.Entry.insert(new Student(null, "First" + n, "Last" + n, "Biology", email(n), "Junior"));
+    }
+
+    private static String email(int n) {
+        return "student" + n + "@farmingdale.edu";
+    }
+
+    // Records what replay sends instead of talking to a server. Emails in stored are taken.
+    private static final class FakeDao extends DbConnectivityClass {
+        final List<Student> inserted = new ArrayList<>();
+        final List<Integer> updated = new ArrayList<>();
+        final List<Integer> deleted = new ArrayList<>();
+        final Map<String, Student> stored = new HashMap<>();
+        boolean unreachable;
+
+        FakeDao() {
+            super(COURSE);
+        }
+
+        @Override
+        BulkInsertResult insertUsersOrThrow(List<Student> students, int batchSize) {
+            BulkInsertResult result = new BulkInsertResult();
+            for (int i = 0; i < students.size(); i++) {
+                Student student = students.get(i);
+                if (stored.containsKey(student.getEmail())) {
+                    result.addFailure(i, student, "Duplicate entry '" + student.getEmail() + "' for key 'email'");
+                } else {
+                    inserted.add(student);
+                    result.addInserted(1);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Student findByEmail(String email) {
+            return stored.get(email);
+        }
+
+        @Override
+        public Map<Integer, String> updateColumns(Map<Integer, ? extends Map<StudentColumn, String>> changes) {
+            updated.addAll(changes.keySet());
+            return Map.of();
+        }
+
+        @Override
+        public int deleteRecords(Collection<Integer> ids) throws SQLException {
+            if (unreachable) {
+                throw new SQLNonTransientConnectionException("Connection refused", "08001");
+            }
+            deleted.addAll(ids);
+            return ids.size();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesGetABucketEach() {
+        for (int micros = 0; micros < 4; micros++) {
+            assertEquals(micros, LatencyHistogram.bucketOf(micros));
+            assertEquals(micros, LatencyHistogram.upperBound(micros));
+        }
+    }
+
+    @Test
+    void powerOfTwoStartsANewBucket() {
+        for (int exponent = 2; exponent <= 42; exponent++) {
+            long power = 1L << exponent;
+            int bucket = LatencyHistogram.bucketOf(power);
+            assertEquals(bucket - 1, LatencyHistogram.bucketOf(power - 1), "2^" + exponent + " - 1");
+            assertEquals(power - 1, LatencyHistogram.upperBound(bucket - 1), "2^" + exponent + " - 1");
+            assertTrue(LatencyHistogram.upperBound(bucket) >= power, "2^" + exponent);
+        }
+    }
+
+    @Test
+    void everyValueFallsWithinItsBucket() {
+        for (int exponent = 2; exponent <= 42; exponent++) {
+            long power = 1L << exponent;
+            for (long micros : new long[]{power - 1, power, power + 1, power + power / 4 - 1, power + power / 4,
+                    power + power / 2, 2 * power - 1}) {
+                int bucket = LatencyHistogram.bucketOf(micros);
+                long upper = LatencyHistogram.upperBound(bucket);
+                assertTrue(micros <= upper, micros + " above its bucket's bound " + upper);
+                assertTrue(LatencyHistogram.upperBound(bucket - 1) < micros, micros + " belongs in an earlier bucket");
+                // Four sub-buckets per power of two keep the bound within 25% of the value
+                assertTrue(upper - micros < micros / 4 + 1, micros + " reported as " + upper);
+            }
+        }
+    }
+
+    @Test
+    void valuesPastTheLastBucketAreClamped() {
+        int last = LatencyHistogram.bucketOf((1L << 43) - 1);
+        assertEquals(last, LatencyHistogram.bucketOf(1L << 43));
+        assertEquals(last, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentileReportsTheBucketBoundCappedAtTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+        assertEquals(1, histogram.percentileMicros(50));
+        assertEquals(1, histogram.percentileMicros(99));
+        // The 1000 us bucket reaches 1023 us, but nothing above the maximum is reported
+        assertEquals(1_000, histogram.percentileMicros(100));
+        assertEquals(1_000, histogram.getMaxMicros());
+    }
+}
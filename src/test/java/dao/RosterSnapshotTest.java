@@ -0,0 +1,100 @@
+package dao;
+
+import model.CompactRoster;
+import model.Student;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RosterSnapshotTest {
+    private static final String COURSE = "SnapshotTest";
+
+    @AfterEach
+    void deleteSnapshots() throws IOException {
+        for (Path path : RosterSnapshot.generations(COURSE)) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void writtenRosterLoadsBackInIdOrder() throws IOException {
+        CompactRoster roster = new CompactRoster();
+        roster.add(30, "Zoë", "Ørsted", "Computer Science", "zoe@farmingdale.edu", "Senior");
+        roster.add(10, "Ava", null, null, "ava@farmingdale.edu", null);
+        roster.add(20, "", "Chen", "Computer Science", "chen@farmingdale.edu", "Freshman");
+        Timestamp watermark = Timestamp.valueOf("2026-10-18 05:13:37.123456789");
+
+        RosterSnapshot.write(COURSE, roster, 42, watermark);
+        RosterSnapshot snapshot = RosterSnapshot.load(COURSE);
+
+        assertEquals(3, snapshot.size());
+        assertEquals(42, snapshot.getMaxId());
+        assertEquals(watermark, snapshot.getWatermark());
+        assertEquals(123456789, snapshot.getWatermark().getNanos());
+        assertEquals(List.of(10, 20, 30), List.of(snapshot.getId(0), snapshot.getId(1), snapshot.getId(2)));
+        assertSameStudent(roster.detach(1), snapshot.get(0));
+        assertSameStudent(roster.detach(2), snapshot.get(1));
+        assertSameStudent(roster.detach(0), snapshot.get(2));
+
+        List<Student> range = snapshot.range(11, 31);
+        assertEquals(2, range.size());
+        assertSameStudent(roster.detach(2), range.get(0));
+
+        CompactRoster copy = snapshot.toRoster();
+        assertEquals(3, copy.size());
+        assertSameStudent(roster.detach(0), copy.detach(copy.indexOfId(30)));
+    }
+
+    @Test
+    void emptyRosterRoundTrips() throws IOException {
+        RosterSnapshot.write(COURSE, new CompactRoster(), 0, new Timestamp(0));
+        RosterSnapshot snapshot = RosterSnapshot.load(COURSE);
+        assertEquals(0, snapshot.size());
+        assertEquals(0, snapshot.toRoster().size());
+    }
+
+    @Test
+    void loadTakesTheNewestGenerationAndWriteDropsOlderOnes() throws IOException {
+        CompactRoster roster = new CompactRoster();
+        roster.add(1, "Ava", "Smith", "Biology", "ava@farmingdale.edu", "Junior");
+        RosterSnapshot.write(COURSE, roster, 1, new Timestamp(1000));
+        roster.setFirstName(0, "Mia");
+        RosterSnapshot.write(COURSE, roster, 1, new Timestamp(2000));
+
+        List<Path> files = RosterSnapshot.generations(COURSE);
+        assertEquals(List.of(COURSE + ".2.roster"), files.stream().map(path -> path.getFileName().toString()).toList());
+        RosterSnapshot snapshot = RosterSnapshot.load(COURSE);
+        assertEquals("Mia", snapshot.get(0).getFirstName());
+        assertEquals(new Timestamp(2000), snapshot.getWatermark());
+    }
+
+    @Test
+    void truncatedSnapshotIsIgnored() throws IOException {
+        CompactRoster roster = new CompactRoster();
+        roster.add(1, "Ava", "Smith", "Biology", "ava@farmingdale.edu", "Junior");
+        RosterSnapshot.write(COURSE, roster, 1, new Timestamp(1000));
+        try (FileChannel channel = FileChannel.open(RosterSnapshot.generations(COURSE).get(0), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertNull(RosterSnapshot.load(COURSE));
+    }
+
+    private static void assertSameStudent(Student expected, Student actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getMajor(), actual.getMajor());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getYear(), actual.getYear());
+    }
+}
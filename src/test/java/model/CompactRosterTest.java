@@ -0,0 +1,122 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CompactRosterTest {
+
+    private static CompactRoster roster(int rows) {
+        CompactRoster roster = new CompactRoster();
+        for (int id = 1; id <= rows; id++) {
+            roster.add(id, "First" + id, "Last" + id, "Biology", "student" + id + "@farmingdale.edu", "Junior");
+        }
+        return roster;
+    }
+
+    @Test
+    void removeIdsKeepsTheOtherRowsInOrder() {
+        CompactRoster roster = roster(10);
+        assertEquals(3, roster.removeIds(Set.of(1, 5, 10, 42)));
+        assertEquals(7, roster.size());
+        int[] expected = {2, 3, 4, 6, 7, 8, 9};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], roster.getId(i));
+            assertEquals("First" + expected[i], roster.getFirstName(i));
+            assertEquals("student" + expected[i] + "@farmingdale.edu", roster.getEmail(i));
+        }
+        assertEquals(0, roster.removeIds(Set.of(1, 5)));
+    }
+
+    @Test
+    void trimToSizeDropsTextOfEditedAndRemovedRows() {
+        CompactRoster roster = roster(100);
+        for (int i = 0; i < 100; i += 2) {
+            roster.setFirstName(i, "Renamed" + i);
+            roster.setLastName(i, null);
+        }
+        roster.removeIds(Set.of(3, 4, 50, 99));
+        roster.remove(0);
+        roster.trimToSize();
+
+        assertEquals(95, roster.size());
+        long text = 0;
+        for (int i = 0; i < roster.size(); i++) {
+            Student row = roster.detach(i);
+            int id = row.getId();
+            boolean edited = id % 2 == 1;
+            assertEquals(edited ? "Renamed" + (id - 1) : "First" + id, row.getFirstName());
+            if (edited) {
+                assertNull(row.getLastName());
+            } else {
+                assertEquals("Last" + id, row.getLastName());
+            }
+            assertEquals("Biology", row.getMajor());
+            assertEquals("Junior", row.getYear());
+            text += utf8(row.getFirstName()) + utf8(row.getLastName()) + utf8(row.getEmail());
+        }
+        // Columns sized to the rows; text holds only what the remaining rows still use
+        long columns = 95 * (4 + 2 + 2 + 3 * 4 + 3 * 2);
+        assertEquals(columns + text, roster.footprintBytes());
+
+        // Still usable after trimming to the exact size
+        roster.add(500, "Added", "Row", "English", "added@farmingdale.edu", "Senior");
+        assertEquals("Added", roster.getFirstName(95));
+        assertEquals(95, roster.indexOfId(500));
+    }
+
+    @Test
+    void repeatedEditsCompactOnTheirOwn() {
+        CompactRoster roster = roster(200);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < roster.size(); i++) {
+                roster.setEmail(i, "round" + round + ".student" + (i + 1) + "@farmingdale.edu");
+            }
+        }
+        for (int i = 0; i < roster.size(); i++) {
+            assertEquals("round19.student" + (i + 1) + "@farmingdale.edu", roster.getEmail(i));
+            assertEquals("First" + (i + 1), roster.getFirstName(i));
+        }
+    }
+
+    @Test
+    void indexOfIdUsesBinarySearchWhileSorted() {
+        CompactRoster roster = roster(50);
+        assertEquals(0, roster.indexOfId(1));
+        assertEquals(49, roster.indexOfId(50));
+        assertEquals(-1, roster.indexOfId(0));
+        assertEquals(-1, roster.indexOfId(51));
+    }
+
+    @Test
+    void indexOfIdScansOnceIdsAreOutOfOrder() {
+        CompactRoster roster = roster(50);
+        roster.add(200, "Two", "Hundred", "Biology", "two.hundred@farmingdale.edu", "Junior");
+        roster.add(100, "One", "Hundred", "Biology", "one.hundred@farmingdale.edu", "Junior");
+        roster.setId(10, 1000);
+        assertEquals(10, roster.indexOfId(1000));
+        assertEquals(50, roster.indexOfId(200));
+        // Behind 200, where a binary search would not look
+        assertEquals(51, roster.indexOfId(100));
+        assertEquals(-1, roster.indexOfId(11));
+        assertEquals(49, roster.indexOfId(50));
+    }
+
+    @Test
+    void clearStartsSortedAgain() {
+        CompactRoster roster = roster(5);
+        roster.setId(0, 99);
+        roster.clear();
+        roster.add(1, "A", "B", "Biology", "a@farmingdale.edu", "Junior");
+        roster.add(2, "C", "D", "Biology", "c@farmingdale.edu", "Junior");
+        assertEquals(1, roster.indexOfId(2));
+    }
+
+    private static int utf8(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}